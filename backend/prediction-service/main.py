@@ -39,6 +39,19 @@ class PredictionResponse(BaseModel):
     is_irregular: bool
     estimated_cycle_length: int
 
+MAX_BATCH_SIZE = 1000
+
+class BatchPredictionRequest(BaseModel):
+    requests: List[PredictionRequest]
+
+class BatchPredictionResult(BaseModel):
+    user_id: int
+    prediction: Optional[PredictionResponse] = None
+    error: Optional[str] = None
+
+class BatchPredictionResponse(BaseModel):
+    results: List[BatchPredictionResult]
+
 def calculate_cycle_lengths(periods: List[PeriodData]) -> List[int]:
     """Calculate cycle lengths from period data"""
     cycle_lengths = []
@@ -189,55 +202,74 @@ def generate_explanation(patterns: Dict[str, Any], confidence: float, data_point
     
     return " ".join(explanation_parts)
 
-@app.post("/predict", response_model=PredictionResponse)
-async def predict_cycle(request: PredictionRequest):
+def run_prediction(request: PredictionRequest) -> PredictionResponse:
     """
     Predict next period, ovulation, and fertile window using ML-like algorithms
     Simulates 82% accuracy with pattern recognition and trend analysis
     """
-    try:
-        # Sort periods by date (most recent first)
-        periods = sorted(request.periods, key=lambda p: p.start_date, reverse=True)
-        
-        # Calculate cycle lengths
-        cycle_lengths = calculate_cycle_lengths(periods)
-        
-        # Detect patterns
-        if not cycle_lengths:
-            # Use user's average or default
-            avg_cycle = request.average_cycle_length or 28
-            patterns = {
-                "average": avg_cycle,
-                "std_dev": 0,
-                "is_regular": True,
-                "trend": "stable"
-            }
-        else:
-            patterns = detect_patterns(cycle_lengths)
-        
-        # Predict next period
-        prediction = predict_next_period(periods, patterns)
-        
-        # Calculate ovulation and fertile window
-        ovulation_data = calculate_ovulation(prediction["date"], prediction["cycle_length"])
-        
-        # Generate explanation
-        explanation = generate_explanation(patterns, prediction["confidence"], len(periods))
-        
-        return PredictionResponse(
-            predicted_period_start=prediction["date"].isoformat(),
-            predicted_ovulation_date=ovulation_data["ovulation_date"].isoformat(),
-            fertile_window_start=ovulation_data["fertile_start"].isoformat(),
-            fertile_window_end=ovulation_data["fertile_end"].isoformat(),
-            confidence=prediction["confidence"],
-            explanation=explanation,
-            is_irregular=not patterns["is_regular"],
-            estimated_cycle_length=prediction["cycle_length"]
-        )
+    # Sort periods by date (most recent first)
+    periods = sorted(request.periods, key=lambda p: p.start_date, reverse=True)
     
+    # Calculate cycle lengths
+    cycle_lengths = calculate_cycle_lengths(periods)
+    
+    # Detect patterns
+    if not cycle_lengths:
+        # Use user's average or default
+        avg_cycle = request.average_cycle_length or 28
+        patterns = {
+            "average": avg_cycle,
+            "std_dev": 0,
+            "is_regular": True,
+            "trend": "stable"
+        }
+    else:
+        patterns = detect_patterns(cycle_lengths)
+    
+    # Predict next period
+    prediction = predict_next_period(periods, patterns)
+    
+    # Calculate ovulation and fertile window
+    ovulation_data = calculate_ovulation(prediction["date"], prediction["cycle_length"])
+    
+    # Generate explanation
+    explanation = generate_explanation(patterns, prediction["confidence"], len(periods))
+    
+    return PredictionResponse(
+        predicted_period_start=prediction["date"].isoformat(),
+        predicted_ovulation_date=ovulation_data["ovulation_date"].isoformat(),
+        fertile_window_start=ovulation_data["fertile_start"].isoformat(),
+        fertile_window_end=ovulation_data["fertile_end"].isoformat(),
+        confidence=prediction["confidence"],
+        explanation=explanation,
+        is_irregular=not patterns["is_regular"],
+        estimated_cycle_length=prediction["cycle_length"]
+    )
+
+@app.post("/predict", response_model=PredictionResponse)
+async def predict_cycle(request: PredictionRequest):
+    try:
+        return run_prediction(request)
     except Exception as e:
         raise HTTPException(status_code=500, detail=f"Prediction error: {str(e)}")
 
+@app.post("/predict/batch", response_model=BatchPredictionResponse)
+def predict_batch(request: BatchPredictionRequest):
+    """
+    Predict for many users in one call (nightly jobs). A failing user gets an error entry
+    instead of failing the whole batch.
+    """
+    if len(request.requests) > MAX_BATCH_SIZE:
+        raise HTTPException(status_code=413, detail=f"At most {MAX_BATCH_SIZE} requests per batch")
+    
+    results = []
+    for item in request.requests:
+        try:
+            results.append(BatchPredictionResult(user_id=item.user_id, prediction=run_prediction(item)))
+        except Exception as e:
+            results.append(BatchPredictionResult(user_id=item.user_id, error=f"Prediction error: {str(e)}"))
+    return BatchPredictionResponse(results=results)
+
 @app.get("/health")
 async def health_check():
     """Health check endpoint"""
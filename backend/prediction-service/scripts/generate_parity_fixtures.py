@@ -0,0 +1,189 @@
+"""
+Generates the fixtures for LocalCyclePredictorParityTest in the Spring Boot API.
+
+Runs the prediction functions from main.py unchanged on seeded random period histories and
+records their responses. The functions are extracted with `ast` so the FastAPI app doesn't have
+to start. numpy and python-dateutil are used when installed; otherwise small stand-ins are used.
+They reproduce numpy's pairwise summation for np.mean / np.std and ISO date parsing.
+
+    python scripts/generate_parity_fixtures.py [output.json]
+"""
+import ast
+import asyncio
+import json
+import math
+import random
+import sys
+from datetime import date, datetime, timedelta
+from pathlib import Path
+from typing import Any, Dict, List, Optional
+
+HERE = Path(__file__).resolve().parent
+MAIN = HERE.parent / "main.py"
+DEFAULT_OUTPUT = (HERE.parent.parent / "spring-boot-api" / "src" / "test" / "resources"
+                  / "prediction" / "parity-cases.json")
+
+FUNCTIONS = {"calculate_cycle_lengths", "detect_patterns", "predict_next_period",
+             "calculate_ovulation", "generate_explanation", "run_prediction", "predict_cycle"}
+
+
+def _pairwise_sum(values: List[float]) -> float:
+    # Mirrors DOUBLE_pairwise_sum in numpy/core/src/umath/loops_utils.h.src
+    n = len(values)
+    if n < 8:
+        res = 0.0
+        for v in values:
+            res += v
+        return res
+    if n <= 128:
+        r = list(values[:8])
+        i = 8
+        while i < n - (n % 8):
+            for j in range(8):
+                r[j] += values[i + j]
+            i += 8
+        res = ((r[0] + r[1]) + (r[2] + r[3])) + ((r[4] + r[5]) + (r[6] + r[7]))
+        while i < n:
+            res += values[i]
+            i += 1
+        return res
+    n2 = n // 2
+    n2 -= n2 % 8
+    return _pairwise_sum(values[:n2]) + _pairwise_sum(values[n2:])
+
+
+class _NumpyStandIn:
+    @staticmethod
+    def array(values):
+        return list(values)
+
+    @staticmethod
+    def mean(values):
+        values = [float(v) for v in values]
+        return _pairwise_sum(values) / len(values)
+
+    @staticmethod
+    def std(values):
+        n = len(values)
+        mean = _pairwise_sum([float(v) for v in values]) / n
+        squares = []
+        for v in values:
+            x = v - mean
+            squares.append(x * x)
+        return math.sqrt(_pairwise_sum(squares) / n)
+
+
+class _ParserStandIn:
+    @staticmethod
+    def parse(value):
+        return datetime.fromisoformat(value)
+
+
+class PeriodData:
+    def __init__(self, start_date: str, end_date: Optional[str] = None, cycle_length: Optional[int] = None):
+        self.start_date = start_date
+        self.end_date = end_date
+        self.cycle_length = cycle_length
+
+
+class PredictionRequest:
+    def __init__(self, user_id: int, periods: List[PeriodData], average_cycle_length: Optional[int] = 28,
+                 average_period_length: Optional[int] = 5):
+        self.user_id = user_id
+        self.periods = periods
+        self.average_cycle_length = average_cycle_length
+        self.average_period_length = average_period_length
+
+
+class HTTPException(Exception):
+    def __init__(self, status_code, detail):
+        super().__init__(detail)
+
+
+def load_predictor():
+    try:
+        import numpy as np
+        backend = "numpy " + np.__version__
+    except ImportError:
+        np = _NumpyStandIn()
+        backend = "numpy stand-in"
+    try:
+        from dateutil import parser
+    except ImportError:
+        parser = _ParserStandIn()
+
+    tree = ast.parse(MAIN.read_text())
+    nodes = []
+    for node in tree.body:
+        if isinstance(node, (ast.FunctionDef, ast.AsyncFunctionDef)) and node.name in FUNCTIONS:
+            node.decorator_list = []
+            nodes.append(node)
+    module = ast.Module(body=nodes, type_ignores=[])
+
+    namespace = {
+        "np": np, "parser": parser, "datetime": datetime, "timedelta": timedelta,
+        "List": List, "Dict": Dict, "Any": Any, "Optional": Optional,
+        "PeriodData": PeriodData, "PredictionRequest": PredictionRequest,
+        "PredictionResponse": dict, "HTTPException": HTTPException,
+    }
+    exec(compile(module, str(MAIN), "exec"), namespace)
+    return namespace["predict_cycle"], backend
+
+
+def generate_history(rng: random.Random) -> List[str]:
+    kind = "long" if rng.random() < 0.04 else rng.choice(["regular", "regular", "irregular", "trending", "noisy"])
+    count = {
+        "regular": rng.randint(1, 14),
+        "irregular": rng.randint(2, 24),
+        "trending": rng.randint(4, 12),
+        "noisy": rng.randint(2, 20),
+        "long": rng.randint(100, 300),
+    }[kind]
+    base = rng.randint(28, 32)
+    drift = rng.choice([-1, 1]) * rng.uniform(0.5, 1.5)
+
+    day = date(2025, 6, 1) + timedelta(days=rng.randint(0, 365))
+    starts = [day]
+    for i in range(count - 1):
+        if kind == "regular":
+            length = base + rng.randint(-2, 2)
+        elif kind == "irregular":
+            length = rng.randint(18, 52)
+        elif kind == "trending":
+            length = int(base + drift * i + rng.randint(-1, 1))
+        elif kind == "noisy":
+            # duplicates, short gaps and skipped months that calculate_cycle_lengths filters out
+            length = rng.choice([0, 3, 14, base, base + 1, base - 3, 47, 60, base * 2])
+        else:
+            length = rng.randint(22, 40)
+        day = day - timedelta(days=length)
+        starts.append(day)
+    return [d.isoformat() for d in starts]
+
+
+def main():
+    output = Path(sys.argv[1]) if len(sys.argv) > 1 else DEFAULT_OUTPUT
+    predict_cycle, backend = load_predictor()
+    rng = random.Random(20240611)
+
+    cases = []
+    for i in range(400):
+        starts = generate_history(rng)
+        average = rng.choice([None, 0, 28, rng.randint(21, 40)])
+        request = PredictionRequest(
+            user_id=i,
+            periods=[PeriodData(start_date=s) for s in starts],
+            average_cycle_length=average,
+        )
+        response = asyncio.run(predict_cycle(request))
+        cases.append({"averageCycleLength": average, "startDates": starts, "expected": response})
+
+    output.parent.mkdir(parents=True, exist_ok=True)
+    with output.open("w") as f:
+        json.dump({"generatedWith": backend, "cases": cases}, f, separators=(",", ":"))
+        f.write("\n")
+    print(f"Wrote {len(cases)} cases to {output} using {backend}")
+
+
+if __name__ == "__main__":
+    main()
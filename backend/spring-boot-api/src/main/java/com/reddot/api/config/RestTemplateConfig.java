@@ -1,15 +1,65 @@
 package com.reddot.api.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
     
+    @Value("${prediction.service.max-connections:50}")
+    private int maxConnections;
+    
+    @Value("${prediction.service.connect-timeout:500ms}")
+    private Duration connectTimeout;
+    
+    @Value("${prediction.service.read-timeout:2s}")
+    private Duration readTimeout;
+    
+    // How long a caller waits for a free pooled connection before giving up
+    @Value("${prediction.service.connection-request-timeout:200ms}")
+    private Duration connectionRequestTimeout;
+    
+    @Value("${prediction.service.idle-timeout:30s}")
+    private Duration idleTimeout;
+    
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient()));
+    }
+    
+    private CloseableHttpClient httpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(connectTimeout))
+                    .setSocketTimeout(Timeout.of(readTimeout))
+                    .setTimeToLive(TimeValue.ofMinutes(5))
+                    .build())
+                .build();
+        
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                    .setResponseTimeout(Timeout.of(readTimeout))
+                    .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .disableAutomaticRetries()
+                .build();
     }
 }
-
@@ -2,13 +2,22 @@ package com.reddot.api.controller;
 
 import com.reddot.api.model.User;
 import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.AccountStatusRegistry;
+import com.reddot.api.security.AuthenticatedUser;
+import com.reddot.api.service.AnalyticsRollupJob;
+import com.reddot.api.service.CycleBackfillJob;
+import com.reddot.api.service.NightlyPredictionJob;
+import com.reddot.api.service.PopulationPriors;
+import com.reddot.api.service.UserCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +31,24 @@ public class AdminController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private AccountStatusRegistry accountStatusRegistry;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    @Autowired
+    private CycleBackfillJob cycleBackfillJob;
+    
+    @Autowired
+    private NightlyPredictionJob nightlyPredictionJob;
+    
+    @Autowired
+    private PopulationPriors populationPriors;
+    
+    @Autowired
+    private AnalyticsRollupJob analyticsRollupJob;
+    
     @GetMapping("/stats")
     @Operation(summary = "Get admin statistics", description = "Get platform statistics")
     public ResponseEntity<Map<String, Object>> getStats() {
@@ -45,5 +72,101 @@ public class AdminController {
         List<User> users = userRepository.findAll();
         return ResponseEntity.ok(users);
     }
+    
+    @PutMapping("/users/{id}/active")
+    @Operation(summary = "Enable or disable user", description = "Enable or disable a user account and revoke its issued tokens")
+    public ResponseEntity<Void> setUserActive(@AuthenticatedUser Long adminId, @PathVariable Long id,
+                                              @RequestParam boolean active) {
+        rejectSelf(adminId, id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setActive(active);
+        saveStatusChange(user);
+        return ResponseEntity.ok().build();
+    }
+    
+    @PutMapping("/users/{id}/role")
+    @Operation(summary = "Change user role", description = "Change a user's role and revoke its issued tokens")
+    public ResponseEntity<Void> setUserRole(@AuthenticatedUser Long adminId, @PathVariable Long id,
+                                            @RequestParam User.Role role) {
+        rejectSelf(adminId, id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setRole(role);
+        saveStatusChange(user);
+        return ResponseEntity.ok().build();
+    }
+    
+    @PostMapping("/cycles/backfill")
+    @Operation(summary = "Backfill cycles", description = "Recompute the cycles table for all users in the background")
+    public ResponseEntity<Map<String, Object>> startCycleBackfill() {
+        boolean started = cycleBackfillJob.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(cycleBackfillJob.getStatus());
+    }
+    
+    @GetMapping("/cycles/backfill")
+    @Operation(summary = "Cycle backfill status", description = "Progress of the last cycle backfill")
+    public ResponseEntity<Map<String, Object>> getCycleBackfillStatus() {
+        return ResponseEntity.ok(cycleBackfillJob.getStatus());
+    }
+    
+    @PostMapping("/predictions/batch")
+    @Operation(summary = "Run batch predictions", description = "Start the nightly prediction refresh now")
+    public ResponseEntity<Map<String, Object>> startBatchPredictions() {
+        boolean started = nightlyPredictionJob.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(nightlyPredictionJob.getStatus());
+    }
+    
+    @GetMapping("/predictions/batch")
+    @Operation(summary = "Batch prediction status", description = "Progress and throughput of the last prediction refresh")
+    public ResponseEntity<Map<String, Object>> getBatchPredictionStatus() {
+        return ResponseEntity.ok(nightlyPredictionJob.getStatus());
+    }
+    
+    @PostMapping("/predictions/priors")
+    @Operation(summary = "Rebuild population priors", description = "Recompute cold-start cycle-length priors on this node now")
+    public ResponseEntity<Map<String, Object>> rebuildPopulationPriors() {
+        boolean started = populationPriors.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(populationPriors.getStatus());
+    }
+    
+    @GetMapping("/predictions/priors")
+    @Operation(summary = "Population priors status", description = "When the priors were built and from how many users")
+    public ResponseEntity<Map<String, Object>> getPopulationPriorsStatus() {
+        return ResponseEntity.ok(populationPriors.getStatus());
+    }
+    
+    @PostMapping("/analytics/rollup")
+    @Operation(summary = "Rebuild analytics rollups", description = "Recompute every user's analytics rollup from their history in the background")
+    public ResponseEntity<Map<String, Object>> rebuildAnalyticsRollups() {
+        boolean started = analyticsRollupJob.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(analyticsRollupJob.getStatus());
+    }
+    
+    @GetMapping("/analytics/rollup")
+    @Operation(summary = "Analytics rollup rebuild status", description = "Progress of the last rebuild and how many rollups it corrected")
+    public ResponseEntity<Map<String, Object>> getAnalyticsRollupStatus() {
+        return ResponseEntity.ok(analyticsRollupJob.getStatus());
+    }
+    
+    // An admin who disables or demotes their own account locks themselves out of this controller
+    private void rejectSelf(Long adminId, Long id) {
+        if (adminId.equals(id)) {
+            throw new RuntimeException("Admins cannot change their own account status");
+        }
+    }
+    
+    private void saveStatusChange(User user) {
+        int version = user.getStatusVersion() != null ? user.getStatusVersion() : 0;
+        user.setStatusVersion(version + 1);
+        user.setStatusChangedAt(LocalDateTime.now());
+        userRepository.save(user);
+        userCache.evict(user);
+        accountStatusRegistry.record(user);
+    }
 }
 
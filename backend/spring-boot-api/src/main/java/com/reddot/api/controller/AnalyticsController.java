@@ -1,14 +1,19 @@
 package com.reddot.api.controller;
 
+import com.reddot.api.dto.DashboardDto;
 import com.reddot.api.service.AnalyticsService;
+import com.reddot.api.service.DashboardService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -19,10 +24,13 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
     
+    @Autowired
+    private DashboardService dashboardService;
+    
     @GetMapping("/dashboard")
     @Operation(summary = "Get dashboard data", description = "Get all analytics data for dashboard")
-    public ResponseEntity<Map<String, Object>> getDashboard() {
-        Map<String, Object> data = analyticsService.getDashboardData();
+    public ResponseEntity<DashboardDto> getDashboard() {
+        DashboardDto data = dashboardService.getDashboard();
         return ResponseEntity.ok(data);
     }
     
@@ -35,15 +43,19 @@ public class AnalyticsController {
     
     @GetMapping("/symptom-frequency")
     @Operation(summary = "Get symptom frequency", description = "Get symptom frequency analysis")
-    public ResponseEntity<Map<String, Object>> getSymptomFrequency() {
-        Map<String, Object> data = analyticsService.getSymptomFrequency();
+    public ResponseEntity<Map<String, Object>> getSymptomFrequency(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        Map<String, Object> data = analyticsService.getSymptomFrequency(startDate, endDate);
         return ResponseEntity.ok(data);
     }
     
     @GetMapping("/mood-trends")
     @Operation(summary = "Get mood trends", description = "Get mood trend analysis")
-    public ResponseEntity<Map<String, Object>> getMoodTrends() {
-        Map<String, Object> data = analyticsService.getMoodTrends();
+    public ResponseEntity<Map<String, Object>> getMoodTrends(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        Map<String, Object> data = analyticsService.getMoodTrends(startDate, endDate);
         return ResponseEntity.ok(data);
     }
     
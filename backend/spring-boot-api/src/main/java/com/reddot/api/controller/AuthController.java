@@ -39,6 +39,13 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/logout")
+    @Operation(summary = "Logout", description = "Revoke the refresh token's session and its access tokens")
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenRequest request) {
+        authService.logout(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+    
     @PostMapping("/forgot-password")
     @Operation(summary = "Forgot password", description = "Request password reset OTP")
     public ResponseEntity<String> forgotPassword(@RequestBody ForgotPasswordRequest request) {
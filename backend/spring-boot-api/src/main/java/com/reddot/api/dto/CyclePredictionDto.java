@@ -11,6 +11,8 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class CyclePredictionDto {
     private LocalDate predictedPeriodStart;
+    private LocalDate predictedPeriodStartEarliest; // 80% predictive interval, where the engine gives one
+    private LocalDate predictedPeriodStartLatest;
     private LocalDate predictedOvulationDate;
     private LocalDate fertileWindowStart;
     private LocalDate fertileWindowEnd;
@@ -18,5 +20,6 @@ public class CyclePredictionDto {
     private String explanation; // Human-friendly explanation
     private Boolean isIrregular;
     private Integer estimatedCycleLength;
+    private String source; // engine name ("local", "remote", "bayesian") or "rule-based"
 }
 
@@ -0,0 +1,59 @@
+package com.reddot.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDto {
+    private CycleConsistency cycleConsistency;
+    private SymptomFrequency symptomFrequency;
+    private MoodTrends moodTrends;
+    private WellnessScore wellnessScore;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CycleConsistency {
+        private Integer averageCycleLength;
+        private Double standardDeviation; // null with insufficient data
+        private String consistency; // very_regular, regular, irregular or insufficient_data
+        private List<Integer> cycleLengths;
+        private Integer totalCycles; // null with insufficient data
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SymptomFrequency {
+        private Map<String, Long> frequency;
+        private Map<String, Double> averageSeverity; // types without any severity are left out
+        private long totalSymptoms;
+        private int uniqueSymptoms;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MoodTrends {
+        private Map<String, Long> moodDistribution;
+        private long totalMoods;
+        private double averageIntensity;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WellnessScore {
+        private long score;
+        private String level;
+        private long logsCount;
+    }
+}
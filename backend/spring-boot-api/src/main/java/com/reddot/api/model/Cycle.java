@@ -11,7 +11,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cycles")
+@Table(name = "cycles",
+       // Also serves "latest cycle for a user" lookups
+       uniqueConstraints = @UniqueConstraint(name = "uk_cycles_user_start", columnNames = {"user_id", "cycleStartDate"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +38,10 @@ public class Cycle {
     
     private LocalDate predictedPeriodStart;
     
+    // 80% predictive interval of the predicted start, when the engine gives one
+    private LocalDate predictedPeriodStartEarliest;
+    private LocalDate predictedPeriodStartLatest;
+    
     private LocalDate predictedOvulationDate;
     
     private LocalDate fertileWindowStart;
@@ -45,6 +51,14 @@ public class Cycle {
     
     private Double predictionConfidence; // 0.0 - 1.0
     
+    private Integer estimatedCycleLength; // days, as predicted for this cycle
+    
+    @Column(length = 1000)
+    private String explanation;
+    
+    @Column(length = 20)
+    private String predictionSource; // engine name or rule-based
+    
     @CreationTimestamp
     private LocalDateTime createdAt;
     
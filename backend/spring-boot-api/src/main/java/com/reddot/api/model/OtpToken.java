@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "otp_tokens")
+@Table(name = "otp_tokens",
+       uniqueConstraints = @UniqueConstraint(name = "uk_otp_tokens_email_type", columnNames = {"email", "type"}),
+       indexes = @Index(name = "idx_otp_tokens_expiry_time", columnList = "expiry_time"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,22 +20,27 @@ public class OtpToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
     
-    @Column(nullable = false)
-    private String otp;
+    // HMAC of the code, never the code itself; the column keeps its old name
+    @Column(name = "otp", nullable = false, length = 64)
+    private String otpHash;
     
     @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
     private OtpType type;
     
     @Column(nullable = false)
     private LocalDateTime expiryTime;
     
+    private Integer attempts = 0;
+    
     private Boolean used = false;
     
+    private LocalDateTime createdAt;
+    
     public enum OtpType {
         PASSWORD_RESET, EMAIL_VERIFICATION
     }
 }
-
@@ -11,7 +11,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "periods")
+@Table(name = "periods",
+       // Most-recent-first reads per user stop after the first N index entries
+       indexes = @Index(name = "idx_periods_user_start", columnList = "user_id, startDate"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,57 @@
+package com.reddot.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_session", columnList = "sessionId"),
+    @Index(name = "idx_refresh_tokens_revoked_at", columnList = "revokedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken implements Persistable<String> {
+    
+    @Id
+    @Column(length = 36)
+    private String jti;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    // Shared by every token rotated from the same login; revoking it logs the device out
+    @Column(nullable = false, length = 36)
+    private String sessionId;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    private LocalDateTime revokedAt;
+    
+    @Column(length = 36)
+    private String replacedBy;
+    
+    private Boolean sessionRevoked = false;
+    
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Override
+    public String getId() {
+        return jti;
+    }
+    
+    // The id is assigned up front, so without this save() would SELECT before every insert
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
+}
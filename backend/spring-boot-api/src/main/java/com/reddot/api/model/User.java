@@ -47,6 +47,13 @@ public class User {
     private Integer averagePeriodLength; // days
     private LocalDate lastPeriodStart;
     
+    // Sufficient statistics of the user's cycle lengths, maintained by CycleModelService
+    private Integer modelPeriodCount;
+    private Integer modelCycleCount;
+    private Long modelLengthSum;
+    private Long modelLengthSumOfSquares;
+    private LocalDate modelLastStart;
+    
     // Health conditions
     @ElementCollection
     @CollectionTable(name = "user_health_conditions", joinColumns = @JoinColumn(name = "user_id"))
@@ -74,6 +81,10 @@ public class User {
     
     private Boolean active = true;
     
+    // Bumped whenever role or active changes so issued tokens can be invalidated
+    private Integer statusVersion = 0;
+    private LocalDateTime statusChangedAt;
+    
     @CreationTimestamp
     private LocalDateTime createdAt;
     
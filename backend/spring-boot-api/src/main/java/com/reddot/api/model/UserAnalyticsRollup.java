@@ -0,0 +1,46 @@
+package com.reddot.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running totals behind the analytics endpoints, one row per user, kept up to date by the write
+ * paths in the same transaction. Per-type symptom and mood counters are in
+ * {@link UserAnalyticsTypeCount}. Written with SQL increments rather than through this entity; it
+ * exists to define the table.
+ */
+@Entity
+@Table(name = "user_analytics_rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAnalyticsRollup {
+    
+    @Id
+    private Long userId; // no foreign key, so the row never blocks deleting a user
+    
+    @Column(nullable = false)
+    private Long symptomCount;
+    
+    @Column(nullable = false)
+    private Long moodCount;
+    
+    @Column(nullable = false)
+    private Long periodCount;
+    
+    // Welford's running mean and sum of squared deviations of the non-outlier cycle lengths
+    @Column(nullable = false)
+    private Long cycleCount;
+    
+    @Column(nullable = false)
+    private Double cycleLengthMean;
+    
+    @Column(name = "cycle_length_m2", nullable = false)
+    private Double cycleLengthM2;
+    
+    private LocalDateTime rebuiltAt;
+}
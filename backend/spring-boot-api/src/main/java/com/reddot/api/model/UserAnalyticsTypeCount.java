@@ -0,0 +1,49 @@
+package com.reddot.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * How many symptoms or moods of one type a user logged, with the sum and count of their severity
+ * or intensity; part of {@link UserAnalyticsRollup}.
+ */
+@Entity
+@Table(name = "user_analytics_type_counts")
+@IdClass(UserAnalyticsTypeCount.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAnalyticsTypeCount {
+    
+    @Id
+    private Long userId;
+    
+    @Id
+    @Column(length = 16)
+    private String category; // SYMPTOM or MOOD
+    
+    @Id
+    private String type; // symptom type or mood type name, empty for a mood without type
+    
+    @Column(nullable = false)
+    private Long entries;
+    
+    @Column(nullable = false)
+    private Long valueSum;
+    
+    @Column(nullable = false)
+    private Long valueCount; // entries with a severity or intensity
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String category;
+        private String type;
+    }
+}
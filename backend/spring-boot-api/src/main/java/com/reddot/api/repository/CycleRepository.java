@@ -1,11 +1,14 @@
 package com.reddot.api.repository;
 
+import com.reddot.api.dto.CyclePredictionDto;
 import com.reddot.api.model.Cycle;
 import com.reddot.api.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,9 +20,41 @@ public interface CycleRepository extends JpaRepository<Cycle, Long> {
     
     Optional<Cycle> findFirstByUserOrderByCycleStartDateDesc(User user);
     
+    Optional<Cycle> findByUserAndCycleStartDate(User user, LocalDate cycleStartDate);
+    
     @Query("SELECT c FROM Cycle c WHERE c.user = :user AND c.cycleStartDate BETWEEN :startDate AND :endDate ORDER BY c.cycleStartDate DESC")
     List<Cycle> findByUserAndDateRange(@Param("user") User user, 
                                        @Param("startDate") LocalDate startDate, 
                                        @Param("endDate") LocalDate endDate);
+    
+    // Stores a prediction computed after the period write committed
+    @Modifying
+    @Transactional
+    @Query("UPDATE Cycle c SET c.predictedPeriodStart = :#{#p.predictedPeriodStart}, " +
+           "c.predictedPeriodStartEarliest = :#{#p.predictedPeriodStartEarliest}, " +
+           "c.predictedPeriodStartLatest = :#{#p.predictedPeriodStartLatest}, " +
+           "c.predictedOvulationDate = :#{#p.predictedOvulationDate}, c.fertileWindowStart = :#{#p.fertileWindowStart}, " +
+           "c.fertileWindowEnd = :#{#p.fertileWindowEnd}, c.isIrregular = :#{#p.isIrregular}, " +
+           "c.predictionConfidence = :#{#p.predictionConfidence}, c.estimatedCycleLength = :#{#p.estimatedCycleLength}, " +
+           "c.explanation = :#{#p.explanation}, c.predictionSource = :#{#p.source}, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.user.id = :userId AND c.cycleStartDate = :cycleStartDate")
+    int updatePrediction(@Param("userId") Long userId,
+                         @Param("cycleStartDate") LocalDate cycleStartDate,
+                         @Param("p") CyclePredictionDto prediction);
+    
+    // Replaces a rule-based prediction with an engine answer that came back after the latency budget
+    @Modifying
+    @Transactional
+    @Query("UPDATE Cycle c SET c.predictedPeriodStart = :#{#p.predictedPeriodStart}, " +
+           "c.predictedPeriodStartEarliest = :#{#p.predictedPeriodStartEarliest}, " +
+           "c.predictedPeriodStartLatest = :#{#p.predictedPeriodStartLatest}, " +
+           "c.predictedOvulationDate = :#{#p.predictedOvulationDate}, c.fertileWindowStart = :#{#p.fertileWindowStart}, " +
+           "c.fertileWindowEnd = :#{#p.fertileWindowEnd}, c.isIrregular = :#{#p.isIrregular}, " +
+           "c.predictionConfidence = :#{#p.predictionConfidence}, c.estimatedCycleLength = :#{#p.estimatedCycleLength}, " +
+           "c.explanation = :#{#p.explanation}, c.predictionSource = :#{#p.source} " +
+           "WHERE c.user.id = :userId AND c.cycleStartDate = :cycleStartDate AND c.predictionSource = 'rule-based'")
+    int replaceRuleBasedPrediction(@Param("userId") Long userId,
+                                   @Param("cycleStartDate") LocalDate cycleStartDate,
+                                   @Param("p") CyclePredictionDto prediction);
 }
 
@@ -0,0 +1,31 @@
+package com.reddot.api.repository;
+
+import com.reddot.api.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    // SKIP LOCKED lets several API nodes drain the outbox without picking the same rows;
+    // a SENDING row whose lease ran out is due again
+    @Query(value = "SELECT * FROM email_outbox WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutbox> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    // Bounded so a large backlog is cleared in short transactions instead of one long lock
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+                   "WHERE status IN ('SENT', 'DEAD') AND created_at < :cutoff LIMIT :limit)", nativeQuery = true)
+    int deleteFinishedBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    long countByStatus(EmailOutbox.Status status);
+}
@@ -2,6 +2,7 @@ package com.reddot.api.repository;
 
 import com.reddot.api.model.Mood;
 import com.reddot.api.model.User;
+import com.reddot.api.service.MoodTypeCount;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,5 +19,12 @@ public interface MoodRepository extends JpaRepository<Mood, Long> {
     List<Mood> findByUserAndDateRange(@Param("user") User user, 
                                      @Param("startDate") LocalDate startDate, 
                                      @Param("endDate") LocalDate endDate);
+    
+    // One row per type; either bound may be null
+    @Query("SELECT new com.reddot.api.service.MoodTypeCount(m.moodType, COUNT(m), AVG(m.intensity), COUNT(m.intensity)) FROM Mood m " +
+           "WHERE m.user = :user AND (:startDate IS NULL OR m.date >= :startDate) AND (:endDate IS NULL OR m.date <= :endDate) " +
+           "GROUP BY m.moodType")
+    List<MoodTypeCount> countByType(@Param("user") User user,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
 }
-
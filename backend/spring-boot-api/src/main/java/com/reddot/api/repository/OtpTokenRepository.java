@@ -2,13 +2,45 @@ package com.reddot.api.repository;
 
 import com.reddot.api.model.OtpToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface OtpTokenRepository extends JpaRepository<OtpToken, Long> {
-    Optional<OtpToken> findByEmailAndOtpAndUsedFalse(String email, String otp);
-    Optional<OtpToken> findByEmailAndTypeAndUsedFalse(String email, OtpToken.OtpType type);
+    
+    // Served by the (email, type) unique index, so lookups don't depend on table size
+    Optional<OtpToken> findByEmailAndType(String email, OtpToken.OtpType type);
+    
+    // One live code per (email, type): a new request replaces the previous code and resets its attempts
+    @Modifying
+    @Query(value = "INSERT INTO otp_tokens (email, type, otp, expiry_time, attempts, used, created_at) " +
+                   "VALUES (:email, :type, :otpHash, :expiryTime, 0, false, :now) " +
+                   "ON CONFLICT (email, type) DO UPDATE SET otp = EXCLUDED.otp, expiry_time = EXCLUDED.expiry_time, " +
+                   "attempts = 0, used = false, created_at = EXCLUDED.created_at", nativeQuery = true)
+    int upsert(@Param("email") String email, @Param("type") String type, @Param("otpHash") String otpHash,
+               @Param("expiryTime") LocalDateTime expiryTime, @Param("now") LocalDateTime now);
+    
+    // Counts a verification against the cap in one statement, so concurrent guesses can't overrun it
+    @Modifying
+    @Query("UPDATE OtpToken o SET o.attempts = o.attempts + 1 " +
+           "WHERE o.email = :email AND o.type = :type AND o.attempts < :max")
+    int claimAttempt(@Param("email") String email, @Param("type") OtpToken.OtpType type, @Param("max") int max);
+    
+    // Succeeds for exactly one caller, so a code can't be redeemed twice by concurrent requests
+    @Modifying
+    @Query("UPDATE OtpToken o SET o.used = true WHERE o.id = :id AND o.used = false")
+    int markUsed(@Param("id") Long id);
+    
+    // Bounded so a large backlog is cleared in short transactions instead of one long lock
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM otp_tokens WHERE id IN (SELECT id FROM otp_tokens " +
+                   "WHERE expiry_time < :now OR used = true LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
-
@@ -2,6 +2,8 @@ package com.reddot.api.repository;
 
 import com.reddot.api.model.Period;
 import com.reddot.api.model.User;
+import com.reddot.api.service.PeriodDates;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,6 +24,10 @@ public interface PeriodRepository extends JpaRepository<Period, Long> {
     
     Optional<Period> findFirstByUserOrderByStartDateDesc(User user);
     
+    // Most recent first; page size bounds how much history is read
+    @Query("SELECT new com.reddot.api.service.PeriodDates(p.startDate, p.endDate) FROM Period p WHERE p.user = :user ORDER BY p.startDate DESC")
+    List<PeriodDates> findDatesByUser(@Param("user") User user, Pageable pageable);
+    
     @Query("SELECT p FROM Period p WHERE p.user = :user AND p.startDate <= :date AND (p.endDate IS NULL OR p.endDate >= :date)")
     Optional<Period> findActivePeriodOnDate(@Param("user") User user, @Param("date") LocalDate date);
 }
@@ -0,0 +1,31 @@
+package com.reddot.api.repository;
+
+import com.reddot.api.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+    
+    // Succeeds for exactly one caller; a second use of the same token updates nothing
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :now, r.replacedBy = :replacedBy WHERE r.jti = :jti AND r.revokedAt IS NULL")
+    int markRotated(@Param("jti") String jti, @Param("replacedBy") String replacedBy, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.sessionRevoked = true, r.revokedAt = :now WHERE r.sessionId = :sessionId")
+    int revokeSession(@Param("sessionId") String sessionId, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT r.sessionId, MAX(r.expiresAt) FROM RefreshToken r WHERE r.sessionRevoked = true AND r.revokedAt > :since AND r.expiresAt > :now GROUP BY r.sessionId")
+    List<Object[]> findRevokedSessionsSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,6 +2,7 @@ package com.reddot.api.repository;
 
 import com.reddot.api.model.Symptom;
 import com.reddot.api.model.User;
+import com.reddot.api.service.SymptomTypeCount;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,5 +19,12 @@ public interface SymptomRepository extends JpaRepository<Symptom, Long> {
     List<Symptom> findByUserAndDateRange(@Param("user") User user, 
                                         @Param("startDate") LocalDate startDate, 
                                         @Param("endDate") LocalDate endDate);
+    
+    // One row per type; either bound may be null
+    @Query("SELECT new com.reddot.api.service.SymptomTypeCount(s.symptomType, COUNT(s), AVG(s.severity)) FROM Symptom s " +
+           "WHERE s.user = :user AND (:startDate IS NULL OR s.date >= :startDate) AND (:endDate IS NULL OR s.date <= :endDate) " +
+           "GROUP BY s.symptomType")
+    List<SymptomTypeCount> countByType(@Param("user") User user,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
 }
-
@@ -1,15 +1,71 @@
 package com.reddot.api.repository;
 
 import com.reddot.api.model.User;
+import com.reddot.api.security.AccountStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+    
+    @EntityGraph(attributePaths = "healthConditions")
+    Optional<User> findWithHealthConditionsByEmail(String email);
+    
+    @EntityGraph(attributePaths = "healthConditions")
+    Optional<User> findWithHealthConditionsById(Long id);
+    
+    @EntityGraph(attributePaths = "healthConditions")
+    List<User> findWithHealthConditionsByIdIn(Collection<Long> ids);
+    
     Boolean existsByEmail(String email);
     Optional<User> findByEmailVerificationToken(String token);
+    
+    @Query("SELECT new com.reddot.api.security.AccountStatus(u.id, u.statusVersion, u.active) FROM User u WHERE u.statusChangedAt > :since")
+    List<AccountStatus> findStatusChangesSince(@Param("since") LocalDateTime since);
+    
+    // Keyset pagination over ids for batch jobs
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.active = true ORDER BY u.id")
+    List<Long> findActiveIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Serializes cycle-model rebuilds with each other and with appendToModel
+    @Query(value = "SELECT id FROM users WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("id") Long id);
+    
+    // Folds one period into the model only if no other write moved it since it was read; touches the model columns only
+    @Modifying
+    @Query("UPDATE User u SET u.modelPeriodCount = u.modelPeriodCount + :periods, " +
+           "u.modelCycleCount = u.modelCycleCount + :cycles, u.modelLengthSum = u.modelLengthSum + :lengthSum, " +
+           "u.modelLengthSumOfSquares = u.modelLengthSumOfSquares + :lengthSumOfSquares, u.modelLastStart = :start " +
+           "WHERE u.id = :id AND u.modelLastStart = :expectedLastStart")
+    int appendToModel(@Param("id") Long id, @Param("expectedLastStart") LocalDate expectedLastStart,
+                      @Param("start") LocalDate start, @Param("periods") int periods, @Param("cycles") int cycles,
+                      @Param("lengthSum") long lengthSum, @Param("lengthSumOfSquares") long lengthSumOfSquares);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.modelPeriodCount = :periodCount, u.modelCycleCount = :cycleCount, " +
+           "u.modelLengthSum = :lengthSum, u.modelLengthSumOfSquares = :lengthSumOfSquares, " +
+           "u.modelLastStart = :lastStart WHERE u.id = :id")
+    int storeModel(@Param("id") Long id, @Param("periodCount") int periodCount, @Param("cycleCount") int cycleCount,
+                   @Param("lengthSum") long lengthSum, @Param("lengthSumOfSquares") long lengthSumOfSquares,
+                   @Param("lastStart") LocalDate lastStart);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.lastPeriodStart = :start " +
+           "WHERE u.id = :id AND (u.lastPeriodStart IS NULL OR u.lastPeriodStart < :start)")
+    int advanceLastPeriodStart(@Param("id") Long id, @Param("start") LocalDate start);
 }
-
@@ -0,0 +1,4 @@
+package com.reddot.api.security;
+
+public record AccountStatus(Long userId, Integer statusVersion, Boolean active) {
+}
@@ -0,0 +1,77 @@
+package com.reddot.api.security;
+
+import com.reddot.api.model.User;
+import com.reddot.api.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of which tokens are still acceptable for each user. Only users whose role or
+ * active flag was ever changed are tracked, so the map stays small. Every node rebuilds it from
+ * the users table on startup and then polls for recent status changes, which keeps the per-request
+ * check free of database access while still propagating revocations across the cluster.
+ */
+@Component
+public class AccountStatusRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(AccountStatusRegistry.class);
+    
+    // Overlap between polls so changes committed while a poll was running are not missed
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private final Map<Long, AccountStatus> statuses = new ConcurrentHashMap<>();
+    
+    private volatile LocalDateTime lastSync = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    @PostConstruct
+    public void load() {
+        sync();
+    }
+    
+    @Scheduled(fixedDelayString = "${jwt.status-sync-interval:15000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<AccountStatus> changes = userRepository.findStatusChangesSince(lastSync);
+            changes.forEach(this::apply);
+            lastSync = startedAt.minusSeconds(SYNC_OVERLAP_SECONDS);
+        } catch (Exception ex) {
+            log.warn("Could not refresh account status registry", ex);
+        }
+    }
+    
+    /**
+     * Records a status change made on this node so it takes effect immediately, without waiting
+     * for the next poll.
+     */
+    public void record(User user) {
+        apply(new AccountStatus(user.getId(), user.getStatusVersion(), user.getActive()));
+    }
+    
+    public boolean isCurrent(Long userId, int statusVersion) {
+        AccountStatus status = statuses.get(userId);
+        if (status == null) {
+            return true;
+        }
+        return Boolean.TRUE.equals(status.active()) && statusVersion >= status.statusVersion();
+    }
+    
+    private void apply(AccountStatus status) {
+        int version = status.statusVersion() != null ? status.statusVersion() : 0;
+        statuses.merge(status.userId(),
+            new AccountStatus(status.userId(), version, status.active()),
+            (existing, incoming) -> incoming.statusVersion() >= existing.statusVersion() ? incoming : existing);
+    }
+}
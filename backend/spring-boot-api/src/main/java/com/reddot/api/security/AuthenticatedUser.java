@@ -0,0 +1,15 @@
+package com.reddot.api.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the current user into a controller method parameter. Declare the parameter as
+ * {@code User} to get the loaded entity, or as {@code Long} to get only the user id.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AuthenticatedUser {
+}
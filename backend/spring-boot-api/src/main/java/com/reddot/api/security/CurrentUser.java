@@ -0,0 +1,70 @@
+package com.reddot.api.security;
+
+import com.reddot.api.model.User;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.service.UserCache;
+import com.reddot.api.service.UserSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * The authenticated user of the current request. The user row is loaded at most once per request
+ * and shared by every service that asks for it; callers that only need the foreign key can use
+ * {@link #getId()} or {@link #getReference()} without touching the database.
+ */
+@Component
+@RequestScope
+public class CurrentUser {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    private User user;
+    
+    public Long getId() {
+        return getPrincipal().getId();
+    }
+    
+    public String getEmail() {
+        return getPrincipal().getUsername();
+    }
+    
+    public User get() {
+        if (user == null) {
+            user = userRepository.findById(getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        return user;
+    }
+    
+    /**
+     * Read-only view of the user served from {@link UserCache}; prefer this over {@link #get()}
+     * when nothing is written back.
+     */
+    public UserSnapshot snapshot() {
+        return userCache.getById(getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+    
+    /**
+     * Returns the loaded user if this request already has it, otherwise an uninitialized
+     * reference that is only good for use as a foreign key in queries and inserts.
+     */
+    public User getReference() {
+        return user != null ? user : userRepository.getReferenceById(getId());
+    }
+    
+    private UserPrincipal getPrincipal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal principal)) {
+            throw new RuntimeException("User not authenticated");
+        }
+        return principal;
+    }
+}
@@ -0,0 +1,37 @@
+package com.reddot.api.security;
+
+import com.reddot.api.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+    
+    @Autowired
+    private CurrentUser currentUser;
+    
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        if (!parameter.hasParameterAnnotation(AuthenticatedUser.class)) {
+            return false;
+        }
+        Class<?> type = parameter.getParameterType();
+        return type == User.class || type == Long.class;
+    }
+    
+    @Override
+    public Object resolveArgument(MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+        if (parameter.getParameterType() == Long.class) {
+            return currentUser.getId();
+        }
+        return currentUser.get();
+    }
+}
@@ -1,5 +1,6 @@
 package com.reddot.api.security;
 
+import com.reddot.api.model.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,22 +26,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private AccountStatusRegistry accountStatusRegistry;
+    
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                     HttpServletResponse response, 
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
+            TokenClaims claims = StringUtils.hasText(jwt) ? tokenProvider.verify(jwt).orElse(null) : null;
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (claims != null) {
+                UserDetails userDetails = buildPrincipal(claims);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication = 
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -49,6 +57,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    private UserDetails buildPrincipal(TokenClaims claims) {
+        if (claims.isRefreshToken()) {
+            return null;
+        }
+        
+        if (claims.userId() == null) {
+            // Tokens issued before the identity claims were added; resolve them the old way until they expire
+            return userDetailsService.loadUserByUsername(claims.subject());
+        }
+        
+        if (!accountStatusRegistry.isCurrent(claims.userId(), claims.statusVersion())) {
+            return null;
+        }
+        
+        if (revokedTokenRegistry.isRevoked(claims.sessionId())) {
+            return null;
+        }
+        
+        User.Role role = User.Role.valueOf(claims.role());
+        return new UserPrincipal(claims.userId(), claims.subject(), null, role, claims.statusVersion(), true);
+    }
+    
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -57,4 +87,3 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return null;
     }
 }
-
@@ -2,18 +2,25 @@ package com.reddot.api.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
     
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS_VERSION = "sv";
+    public static final String CLAIM_TYPE = "type";
+    public static final String CLAIM_SESSION_ID = "sid";
+    public static final String TYPE_REFRESH = "refresh";
+    
     @Value("${jwt.secret}")
     private String jwtSecret;
     
@@ -23,60 +30,78 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    // Both are immutable and thread-safe, so they are built once instead of per token
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
     
-    public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+    public String generateToken(UserPrincipal principal, String sessionId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
         
         return Jwts.builder()
-                .subject(userDetails.getUsername())
+                .subject(principal.getUsername())
+                .claim(CLAIM_USER_ID, principal.getId())
+                .claim(CLAIM_ROLE, principal.getRole().name())
+                .claim(CLAIM_STATUS_VERSION, principal.getStatusVersion())
+                .claim(CLAIM_SESSION_ID, sessionId)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public String generateRefreshToken(String username) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + refreshExpiration);
-        
+    public String generateRefreshToken(UserPrincipal principal, String jti, String sessionId, Date expiryDate) {
         return Jwts.builder()
-                .subject(username)
-                .issuedAt(now)
+                .id(jti)
+                .subject(principal.getUsername())
+                .claim(CLAIM_USER_ID, principal.getId())
+                .claim(CLAIM_SESSION_ID, sessionId)
+                .issuedAt(new Date())
                 .expiration(expiryDate)
-                .claim("type", "refresh")
-                .signWith(getSigningKey())
+                .claim(CLAIM_TYPE, TYPE_REFRESH)
+                .signWith(signingKey)
                 .compact();
     }
     
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.getSubject();
-    }
-    
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the signature and expiry once and returns the parsed claims, or empty if the
+     * token is invalid.
+     */
+    public Optional<TokenClaims> verify(String token) {
+        Claims claims;
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return Optional.empty();
         }
+        
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        Number statusVersion = claims.get(CLAIM_STATUS_VERSION, Number.class);
+        return Optional.of(new TokenClaims(
+            claims.getSubject(),
+            userId != null ? userId.longValue() : null,
+            claims.get(CLAIM_ROLE, String.class),
+            statusVersion != null ? statusVersion.intValue() : 0,
+            claims.get(CLAIM_TYPE, String.class),
+            claims.getId(),
+            claims.get(CLAIM_SESSION_ID, String.class),
+            claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        ));
     }
     
     public long getJwtExpiration() {
         return jwtExpiration;
     }
+    
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
 }
-
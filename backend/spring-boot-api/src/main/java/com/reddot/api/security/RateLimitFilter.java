@@ -0,0 +1,206 @@
+package com.reddot.api.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throttles the unauthenticated auth endpoints listed under {@code app.rate-limit.endpoints} per
+ * client IP and per email before any password hashing, database access or mail happens. The
+ * client IP is {@link HttpServletRequest#getRemoteAddr()}; behind a proxy set
+ * {@code server.forward-headers-strategy} so it reflects the real client.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private RateLimitProperties properties;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, String> endpointsByPath = new HashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        properties.getEndpoints().forEach((name, endpoint) -> endpointsByPath.put(endpoint.getPath(), name));
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+            || !"POST".equals(request.getMethod())
+            || !endpointsByPath.containsKey(pathOf(request));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String name = endpointsByPath.get(pathOf(request));
+        RateLimitProperties.Endpoint endpoint = properties.getEndpoints().get(name);
+        
+        if (endpoint.getPerIp() != null) {
+            long wait = rateLimiter.tryAcquire(name + ":ip:" + request.getRemoteAddr(), endpoint.getPerIp());
+            if (wait > 0) {
+                reject(response, name, "ip", wait);
+                return;
+            }
+        }
+        
+        if (endpoint.getPerEmail() != null) {
+            BufferedBodyRequest buffered = new BufferedBodyRequest(request, properties.getMaxBodyBytes());
+            request = buffered;
+            String email = buffered.isComplete() ? readEmail(buffered.getPrefix()) : null;
+            if (email != null) {
+                long wait = rateLimiter.tryAcquire(name + ":email:" + email, endpoint.getPerEmail());
+                if (wait > 0) {
+                    reject(response, name, "email", wait);
+                    return;
+                }
+            }
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    private void reject(HttpServletResponse response, String endpoint, String key, long waitNanos) throws IOException {
+        meterRegistry.counter("auth.ratelimit.rejected", "endpoint", endpoint, "key", key).increment();
+        
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+            "status", HttpStatus.TOO_MANY_REQUESTS.value(),
+            "error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+            "message", "Too many requests, please try again later"
+        ));
+    }
+    
+    private String readEmail(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            if (email == null || !email.isTextual() || email.asText().isBlank()) {
+                return null;
+            }
+            return email.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+    
+    /**
+     * Reads up to {@code limit} bytes of the body up front so the email can be inspected, then
+     * replays them followed by whatever is left of the original stream.
+     */
+    static class BufferedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] prefix;
+        private final boolean complete;
+        private final ServletInputStream inputStream;
+        
+        BufferedBodyRequest(HttpServletRequest request, int limit) throws IOException {
+            super(request);
+            ServletInputStream original = request.getInputStream();
+            this.prefix = original.readNBytes(limit);
+            this.complete = prefix.length < limit || original.isFinished();
+            this.inputStream = new ReplayInputStream(new ByteArrayInputStream(prefix), original);
+        }
+        
+        byte[] getPrefix() {
+            return prefix;
+        }
+        
+        boolean isComplete() {
+            return complete;
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+    }
+    
+    private static class ReplayInputStream extends ServletInputStream {
+        
+        private final InputStream prefix;
+        private final ServletInputStream rest;
+        private boolean prefixDone;
+        
+        ReplayInputStream(InputStream prefix, ServletInputStream rest) {
+            this.prefix = prefix;
+            this.rest = rest;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (!prefixDone) {
+                int b = prefix.read();
+                if (b != -1) {
+                    return b;
+                }
+                prefixDone = true;
+            }
+            return rest.read();
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!prefixDone) {
+                int n = prefix.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                prefixDone = true;
+            }
+            return rest.read(b, off, len);
+        }
+        
+        @Override
+        public boolean isFinished() {
+            return prefixDone && rest.isFinished();
+        }
+        
+        @Override
+        public boolean isReady() {
+            return !prefixDone || rest.isReady();
+        }
+        
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            rest.setReadListener(readListener);
+        }
+    }
+}
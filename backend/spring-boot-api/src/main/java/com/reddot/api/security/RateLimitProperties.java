@@ -0,0 +1,46 @@
+package com.reddot.api.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code app.rate-limit.*}: per-endpoint token buckets for the unauthenticated auth endpoints.
+ * Each endpoint may be limited per client IP, per email in the request body, or both.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    private int stripes = 16;
+    
+    // Soft cap across all stripes; a full stripe evicts idle buckets before growing further
+    private int maxKeys = 100_000;
+    
+    private Duration idleTimeout = Duration.ofMinutes(15);
+    
+    // Largest request body read to find the email; bigger bodies are only limited per IP
+    private int maxBodyBytes = 4096;
+    
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    
+    @Data
+    public static class Endpoint {
+        private String path;
+        private Limit perIp;
+        private Limit perEmail;
+    }
+    
+    @Data
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+    }
+}
@@ -0,0 +1,78 @@
+package com.reddot.api.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets keyed by arbitrary strings, spread over {@code app.rate-limit.stripes} maps so the
+ * idle sweep and the size cap work on one small map at a time instead of the whole key space.
+ */
+@Component
+public class RateLimiter {
+    
+    private final RateLimitProperties properties;
+    private final ConcurrentHashMap<String, TokenBucket>[] stripes;
+    private final int maxKeysPerStripe;
+    
+    @SuppressWarnings("unchecked")
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int count = Integer.highestOneBit(Math.max(1, properties.getStripes()));
+        this.stripes = new ConcurrentHashMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.maxKeysPerStripe = Math.max(1, properties.getMaxKeys() / count);
+        meterRegistry.gauge("auth.ratelimit.keys", this, RateLimiter::size);
+    }
+    
+    /**
+     * Takes a token from the bucket for {@code key}, creating it on first use. Returns 0 if the
+     * request may proceed, otherwise the wait in nanoseconds until it would be allowed.
+     */
+    public long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        long now = System.nanoTime();
+        ConcurrentHashMap<String, TokenBucket> stripe = stripeFor(key);
+        TokenBucket bucket = stripe.get(key);
+        if (bucket == null) {
+            if (stripe.size() >= maxKeysPerStripe) {
+                evictIdle(stripe, now);
+            }
+            long interval = Math.max(1, limit.getPeriod().toNanos() / Math.max(1, limit.getCapacity()));
+            bucket = stripe.computeIfAbsent(key, k -> new TokenBucket(limit.getCapacity(), interval, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (ConcurrentHashMap<String, TokenBucket> stripe : stripes) {
+            evictIdle(stripe, now);
+        }
+    }
+    
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, TokenBucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+    
+    private void evictIdle(ConcurrentHashMap<String, TokenBucket> stripe, long now) {
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        stripe.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+    }
+    
+    private ConcurrentHashMap<String, TokenBucket> stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+}
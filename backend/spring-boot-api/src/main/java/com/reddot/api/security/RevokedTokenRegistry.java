@@ -0,0 +1,94 @@
+package com.reddot.api.security;
+
+import com.reddot.api.repository.RefreshTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of revoked session ids (logout and detected replay), checked on every refresh and
+ * every authenticated request. Rotated refresh tokens are not listed: {@code markRotated} rejects a
+ * second use in the database, so the set only grows with revoked sessions. A Bloom filter answers
+ * the common "not revoked" case; only possible hits consult the exact map. Rebuilt from
+ * {@code refresh_tokens} on startup and kept in step with other nodes by polling for recent
+ * revocations, the same way {@link AccountStatusRegistry} is.
+ */
+@Component
+public class RevokedTokenRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(RevokedTokenRegistry.class);
+    
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+    
+    // Value is when the entry can be forgotten: no token referring to it is valid after that
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+    
+    private volatile BloomFilter bloomFilter;
+    
+    private volatile LocalDateTime lastSync = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    @PostConstruct
+    public void load() {
+        bloomFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+        sync();
+    }
+    
+    @Scheduled(fixedDelayString = "${jwt.status-sync-interval:15000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<Object[]> sessions = refreshTokenRepository.findRevokedSessionsSince(lastSync, startedAt);
+            sessions.forEach(row -> revoke((String) row[0], (LocalDateTime) row[1]));
+            lastSync = startedAt.minusSeconds(SYNC_OVERLAP_SECONDS);
+        } catch (Exception ex) {
+            log.warn("Could not refresh revoked token registry", ex);
+        }
+    }
+    
+    public boolean isRevoked(String id) {
+        if (id == null || !bloomFilter.mightContain(id)) {
+            return false;
+        }
+        LocalDateTime until = revoked.get(id);
+        return until != null && until.isAfter(LocalDateTime.now());
+    }
+    
+    public synchronized void revoke(String id, LocalDateTime until) {
+        revoked.merge(id, until, (a, b) -> a.isAfter(b) ? a : b);
+        bloomFilter.add(id);
+    }
+    
+    /**
+     * Drops entries whose tokens have all expired and rebuilds the Bloom filter, sized for the
+     * current population, so it does not saturate over time.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval:3600000}")
+    public synchronized void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        revoked.values().removeIf(until -> !until.isAfter(now));
+        
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+    }
+    
+    public int size() {
+        return revoked.size();
+    }
+}
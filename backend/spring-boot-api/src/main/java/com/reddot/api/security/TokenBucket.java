@@ -0,0 +1,46 @@
+package com.reddot.api.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding {@code capacity} tokens and refilling one every
+ * {@code intervalNanos}. The whole state is a single "theoretical arrival time": the instant at
+ * which the bucket would be full again. Taking a token pushes it forward by one interval, and the
+ * request is refused if that would put it more than {@code capacity} intervals ahead of now.
+ */
+final class TokenBucket {
+    
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+    
+    TokenBucket(int capacity, long intervalNanos, long now) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = capacity * intervalNanos;
+        this.fullAt = new AtomicLong(now);
+    }
+    
+    /**
+     * Returns 0 if a token was taken, otherwise the nanoseconds until one becomes available.
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * A bucket that has been full for longer than {@code idleNanos} carries no state worth keeping.
+     */
+    boolean isIdle(long now, long idleNanos) {
+        return now - fullAt.get() > idleNanos;
+    }
+}
@@ -0,0 +1,22 @@
+package com.reddot.api.security;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of a token whose signature and expiry have already been verified.
+ */
+public record TokenClaims(
+    String subject,
+    Long userId,
+    String role,
+    int statusVersion,
+    String type,
+    String jti,
+    String sessionId,
+    Instant expiration
+) {
+    
+    public boolean isRefreshToken() {
+        return JwtTokenProvider.TYPE_REFRESH.equals(type);
+    }
+}
@@ -0,0 +1,83 @@
+package com.reddot.api.security;
+
+import com.reddot.api.model.User;
+import com.reddot.api.service.UserSnapshot;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+@Getter
+public class UserPrincipal implements UserDetails {
+    
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final User.Role role;
+    private final int statusVersion;
+    private final boolean active;
+    
+    public UserPrincipal(Long id, String email, String password, User.Role role, int statusVersion, boolean active) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.role = role;
+        this.statusVersion = statusVersion;
+        this.active = active;
+    }
+    
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(
+            user.getId(),
+            user.getEmail(),
+            user.getPassword(),
+            user.getRole(),
+            user.getStatusVersion() != null ? user.getStatusVersion() : 0,
+            Boolean.TRUE.equals(user.getActive())
+        );
+    }
+    
+    public static UserPrincipal from(UserSnapshot user) {
+        return new UserPrincipal(
+            user.id(),
+            user.email(),
+            null,
+            user.role(),
+            user.statusVersion(),
+            Boolean.TRUE.equals(user.active())
+        );
+    }
+    
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    @Override
+    public String getUsername() {
+        return email;
+    }
+    
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isAccountNonLocked() {
+        return active;
+    }
+    
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
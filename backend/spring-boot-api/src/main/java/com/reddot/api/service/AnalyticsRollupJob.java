@@ -0,0 +1,72 @@
+package com.reddot.api.service;
+
+import com.reddot.api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds every user's analytics rollup from their history, which creates missing rollups and
+ * corrects any drift from the incremental updates. Users are read in id-ordered chunks and rebuilt
+ * one transaction each; {@code correctedUsers} counts rollups that were missing or wrong.
+ */
+@Service
+public class AnalyticsRollupJob extends BackgroundJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupJob.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.analytics-rollup.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.analytics-rollup.chunk-size:500}")
+    private int chunkSize;
+    
+    private final AtomicLong processedUsers = counter("processedUsers");
+    private final AtomicLong correctedUsers = counter("correctedUsers");
+    private final AtomicLong failedUsers = counter("failedUsers");
+    
+    public AnalyticsRollupJob() {
+        super("Analytics rollup rebuild");
+    }
+    
+    @Scheduled(cron = "${app.analytics-rollup.cron:0 0 5 * * SUN}")
+    public void runWeekly() {
+        if (enabled) {
+            start();
+        }
+    }
+    
+    @Override
+    protected void execute() throws InterruptedException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        forEachChunk(userRepository::findIdsAfter, chunkSize, 1, ids -> {
+            for (Long id : ids) {
+                try {
+                    if (Boolean.TRUE.equals(transaction.execute(status -> analyticsRollupService.rebuild(id)))) {
+                        correctedUsers.incrementAndGet();
+                    }
+                    processedUsers.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failedUsers.incrementAndGet();
+                    log.warn("Analytics rollup rebuild failed for user {}", id, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,341 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.Mood;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps {@code user_analytics_rollup} and {@code user_analytics_type_counts} in step with a user's
+ * symptoms, moods and periods, so the analytics endpoints read two rows instead of the history.
+ * <p>
+ * Call the write hooks in the transaction that saved the entity. Symptom and mood counters are
+ * incremented in SQL. A period write locks the rollup row, looks up the neighbouring start dates
+ * and adds or removes the affected cycle lengths from the Welford statistics, so edits and deletes
+ * apply the reverse of what an insert applied. Lengths are filtered like {@link CycleStats}. A user
+ * without a rollup row gets one built from the history on their first write; {@link #rebuild} also
+ * serves {@link AnalyticsRollupJob}'s drift correction.
+ */
+@Service
+public class AnalyticsRollupService {
+    
+    static final String SYMPTOM = "SYMPTOM";
+    static final String MOOD = "MOOD";
+    
+    private static final String SELECT_ROLLUP =
+        "SELECT symptom_count, mood_count, period_count, cycle_count, cycle_length_mean, cycle_length_m2 " +
+        "FROM user_analytics_rollup WHERE user_id = :userId";
+    
+    private static final String SELECT_TYPE_COUNTS =
+        "SELECT category, type, entries, value_sum, value_count FROM user_analytics_type_counts " +
+        "WHERE user_id = :userId AND entries > 0";
+    
+    private static final String INCREMENT_SYMPTOMS =
+        "UPDATE user_analytics_rollup SET symptom_count = symptom_count + 1 WHERE user_id = :userId";
+    
+    private static final String INCREMENT_MOODS =
+        "UPDATE user_analytics_rollup SET mood_count = mood_count + 1 WHERE user_id = :userId";
+    
+    private static final String INSERT_TYPE_COUNT =
+        "INSERT INTO user_analytics_type_counts (user_id, category, type, entries, value_sum, value_count) " +
+        "VALUES (:userId, :category, :type, :entries, :valueSum, :valueCount) ON CONFLICT DO NOTHING";
+    
+    private static final String INCREMENT_TYPE_COUNT =
+        "UPDATE user_analytics_type_counts SET entries = entries + 1, value_sum = value_sum + :valueSum, " +
+        "value_count = value_count + :valueCount WHERE user_id = :userId AND category = :category AND type = :type";
+    
+    // The latest start on or before the date and the first one after it, not counting the period itself
+    private static final String SELECT_NEIGHBOURS =
+        "SELECT (SELECT MAX(start_date) FROM periods WHERE user_id = :userId AND id <> :periodId AND start_date <= :date) AS previous_start, " +
+        "(SELECT MIN(start_date) FROM periods WHERE user_id = :userId AND id <> :periodId AND start_date > :date) AS next_start";
+    
+    private static final String UPDATE_CYCLES =
+        "UPDATE user_analytics_rollup SET period_count = :periodCount, cycle_count = :cycleCount, " +
+        "cycle_length_mean = :mean, cycle_length_m2 = :m2 WHERE user_id = :userId";
+    
+    private static final String COUNT_SYMPTOM_TYPES =
+        "SELECT symptom_type AS type, COUNT(*) AS entries, COALESCE(SUM(severity), 0) AS value_sum, " +
+        "COUNT(severity) AS value_count FROM symptoms WHERE user_id = :userId GROUP BY symptom_type";
+    
+    private static final String COUNT_MOOD_TYPES =
+        "SELECT COALESCE(mood_type, '') AS type, COUNT(*) AS entries, COALESCE(SUM(intensity), 0) AS value_sum, " +
+        "COUNT(intensity) AS value_count FROM moods WHERE user_id = :userId GROUP BY mood_type";
+    
+    private static final String SELECT_START_DATES =
+        "SELECT start_date FROM periods WHERE user_id = :userId ORDER BY start_date";
+    
+    private static final String INSERT_EMPTY_ROLLUP =
+        "INSERT INTO user_analytics_rollup (user_id, symptom_count, mood_count, period_count, cycle_count, " +
+        "cycle_length_mean, cycle_length_m2) VALUES (:userId, 0, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING";
+    
+    private static final String UPDATE_ROLLUP =
+        "UPDATE user_analytics_rollup SET symptom_count = :symptomCount, mood_count = :moodCount, " +
+        "period_count = :periodCount, cycle_count = :cycleCount, cycle_length_mean = :mean, cycle_length_m2 = :m2, " +
+        "rebuilt_at = :rebuiltAt WHERE user_id = :userId";
+    
+    private static final String DELETE_TYPE_COUNTS =
+        "DELETE FROM user_analytics_type_counts WHERE user_id = :userId";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * A user's rollup, in the shape of the repositories' {@code countByType}; averages per type come
+     * from the stored sums.
+     */
+    public record Rollup(long symptomCount, long moodCount, long periodCount, RunningStats cycleLengths,
+                         List<SymptomTypeCount> symptoms, List<MoodTypeCount> moods) {
+        
+        /**
+         * Same counts and, up to rounding in the running statistics, the same cycle statistics.
+         */
+        boolean matches(Rollup other) {
+            return symptomCount == other.symptomCount && moodCount == other.moodCount
+                && periodCount == other.periodCount && cycleLengths.count() == other.cycleLengths.count()
+                && Math.abs(cycleLengths.mean() - other.cycleLengths.mean()) < 1e-6
+                && Math.abs(cycleLengths.m2() - other.cycleLengths.m2()) < 1e-6 * Math.max(1, other.cycleLengths.m2())
+                && new HashSet<>(symptoms).equals(new HashSet<>(other.symptoms))
+                && new HashSet<>(moods).equals(new HashSet<>(other.moods));
+        }
+    }
+    
+    /**
+     * The stored rollup, or null if the user has none yet.
+     */
+    public Rollup read(Long userId) {
+        RollupRow row = selectRollup(userId, false);
+        if (row == null) {
+            return null;
+        }
+        List<SymptomTypeCount> symptoms = new ArrayList<>();
+        List<MoodTypeCount> moods = new ArrayList<>();
+        namedParameterJdbcTemplate.query(SELECT_TYPE_COUNTS, Map.of("userId", userId),
+            (RowCallbackHandler) rs -> addTypeCount(rs.getString("category"), rs.getString("type"), rs.getLong("entries"),
+                rs.getLong("value_sum"), rs.getLong("value_count"), symptoms, moods));
+        return new Rollup(row.symptomCount, row.moodCount, row.periodCount, row.cycles, symptoms, moods);
+    }
+    
+    /**
+     * The user's cycle-length statistics over the whole history, or null without a rollup.
+     */
+    public RunningStats cycleLengths(Long userId) {
+        RollupRow row = selectRollup(userId, false);
+        return row != null ? row.cycles : null;
+    }
+    
+    @Transactional
+    public void symptomLogged(Long userId, String symptomType, Integer severity) {
+        if (namedParameterJdbcTemplate.update(INCREMENT_SYMPTOMS, Map.of("userId", userId)) == 0) {
+            rebuild(userId);
+            return;
+        }
+        incrementType(userId, SYMPTOM, symptomType, severity);
+    }
+    
+    @Transactional
+    public void moodLogged(Long userId, Mood.MoodType moodType, Integer intensity) {
+        if (namedParameterJdbcTemplate.update(INCREMENT_MOODS, Map.of("userId", userId)) == 0) {
+            rebuild(userId);
+            return;
+        }
+        incrementType(userId, MOOD, moodType != null ? moodType.name() : "", intensity);
+    }
+    
+    /**
+     * Call after the period was inserted.
+     */
+    @Transactional
+    public void periodAdded(Long userId, Long periodId, LocalDate start) {
+        periodMoved(userId, periodId, null, start);
+    }
+    
+    /**
+     * Call after the period was deleted.
+     */
+    @Transactional
+    public void periodRemoved(Long userId, Long periodId, LocalDate start) {
+        periodMoved(userId, periodId, start, null);
+    }
+    
+    /**
+     * Call after a period's start date changed from {@code from} to {@code to}; either may be null
+     * for an insert or a delete.
+     */
+    @Transactional
+    public void periodMoved(Long userId, Long periodId, LocalDate from, LocalDate to) {
+        RollupRow row = selectRollup(userId, true);
+        if (row == null) {
+            rebuild(userId);
+            return;
+        }
+        long periodCount = row.periodCount;
+        RunningStats cycles = row.cycles;
+        if (from != null) {
+            LocalDate[] neighbours = neighbours(userId, periodId, from);
+            cycles = removeLength(cycles, neighbours[0], from);
+            cycles = removeLength(cycles, from, neighbours[1]);
+            cycles = addLength(cycles, neighbours[0], neighbours[1]);
+            periodCount--;
+        }
+        if (to != null) {
+            LocalDate[] neighbours = neighbours(userId, periodId, to);
+            cycles = removeLength(cycles, neighbours[0], neighbours[1]);
+            cycles = addLength(cycles, neighbours[0], to);
+            cycles = addLength(cycles, to, neighbours[1]);
+            periodCount++;
+        }
+        namedParameterJdbcTemplate.update(UPDATE_CYCLES, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("periodCount", periodCount)
+                .addValue("cycleCount", cycles.count())
+                .addValue("mean", cycles.mean())
+                .addValue("m2", cycles.m2()));
+    }
+    
+    /**
+     * Recomputes the user's rollup from the history. The rollup row is locked first, so writes that
+     * commit while this runs are applied on top of the result rather than lost.
+     *
+     * @return true if the stored rollup was missing or different
+     */
+    @Transactional
+    public boolean rebuild(Long userId) {
+        entityManager.flush(); // the history is read with JDBC
+        Rollup before = read(userId);
+        namedParameterJdbcTemplate.update(INSERT_EMPTY_ROLLUP, Map.of("userId", userId));
+        selectRollup(userId, true);
+        
+        Map<String, Object> params = Map.of("userId", userId);
+        List<SymptomTypeCount> symptoms = new ArrayList<>();
+        List<MoodTypeCount> moods = new ArrayList<>();
+        List<SqlParameterSource> typeRows = new ArrayList<>();
+        long[] totals = new long[2]; // symptoms, moods
+        for (String category : new String[] {SYMPTOM, MOOD}) {
+            namedParameterJdbcTemplate.query(category.equals(SYMPTOM) ? COUNT_SYMPTOM_TYPES : COUNT_MOOD_TYPES, params,
+                (RowCallbackHandler) rs -> {
+                    String type = rs.getString("type");
+                    long entries = rs.getLong("entries");
+                    long valueSum = rs.getLong("value_sum");
+                    long valueCount = rs.getLong("value_count");
+                    addTypeCount(category, type, entries, valueSum, valueCount, symptoms, moods);
+                    totals[category.equals(SYMPTOM) ? 0 : 1] += entries;
+                    typeRows.add(typeCountParams(userId, category, type, entries, valueSum, valueCount));
+                });
+        }
+        
+        List<Date> starts = namedParameterJdbcTemplate.queryForList(SELECT_START_DATES, params, Date.class);
+        RunningStats cycles = RunningStats.EMPTY;
+        for (int i = 1; i < starts.size(); i++) {
+            cycles = addLength(cycles, starts.get(i - 1).toLocalDate(), starts.get(i).toLocalDate());
+        }
+        
+        namedParameterJdbcTemplate.update(DELETE_TYPE_COUNTS, params);
+        if (!typeRows.isEmpty()) {
+            namedParameterJdbcTemplate.batchUpdate(INSERT_TYPE_COUNT, typeRows.toArray(new SqlParameterSource[0]));
+        }
+        namedParameterJdbcTemplate.update(UPDATE_ROLLUP, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("symptomCount", totals[0])
+                .addValue("moodCount", totals[1])
+                .addValue("periodCount", (long) starts.size())
+                .addValue("cycleCount", cycles.count())
+                .addValue("mean", cycles.mean())
+                .addValue("m2", cycles.m2())
+                .addValue("rebuiltAt", Timestamp.valueOf(LocalDateTime.now())));
+        
+        Rollup after = new Rollup(totals[0], totals[1], starts.size(), cycles, symptoms, moods);
+        return before == null || !before.matches(after);
+    }
+    
+    private void incrementType(Long userId, String category, String type, Integer value) {
+        namedParameterJdbcTemplate.update(INSERT_TYPE_COUNT, typeCountParams(userId, category, type, 0, 0, 0));
+        namedParameterJdbcTemplate.update(INCREMENT_TYPE_COUNT, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("category", category)
+                .addValue("type", type)
+                .addValue("valueSum", value != null ? value : 0)
+                .addValue("valueCount", value != null ? 1 : 0));
+    }
+    
+    private LocalDate[] neighbours(Long userId, Long periodId, LocalDate date) {
+        return namedParameterJdbcTemplate.queryForObject(SELECT_NEIGHBOURS,
+            Map.of("userId", userId, "periodId", periodId, "date", date),
+            (rs, row) -> new LocalDate[] {toLocalDate(rs.getDate("previous_start")), toLocalDate(rs.getDate("next_start"))});
+    }
+    
+    private static RunningStats addLength(RunningStats cycles, LocalDate from, LocalDate to) {
+        long length = length(from, to);
+        return length > 0 ? cycles.add(length) : cycles;
+    }
+    
+    private static RunningStats removeLength(RunningStats cycles, LocalDate from, LocalDate to) {
+        long length = length(from, to);
+        return length > 0 ? cycles.remove(length) : cycles;
+    }
+    
+    /**
+     * The cycle length between two consecutive starts if it counts, else 0.
+     */
+    private static long length(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return 0;
+        }
+        long length = to.toEpochDay() - from.toEpochDay();
+        return length > 0 && length < CycleStats.MAX_CYCLE_LENGTH ? length : 0;
+    }
+    
+    private static void addTypeCount(String category, String type, long entries, long valueSum, long valueCount,
+                                     List<SymptomTypeCount> symptoms, List<MoodTypeCount> moods) {
+        Double average = valueCount > 0 ? (double) valueSum / valueCount : null;
+        if (category.equals(SYMPTOM)) {
+            symptoms.add(new SymptomTypeCount(type, entries, average));
+        } else {
+            moods.add(new MoodTypeCount(type.isEmpty() ? null : Mood.MoodType.valueOf(type), entries, average, valueCount));
+        }
+    }
+    
+    private static SqlParameterSource typeCountParams(Long userId, String category, String type, long entries,
+                                                      long valueSum, long valueCount) {
+        return new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("category", category)
+                .addValue("type", Objects.requireNonNullElse(type, ""))
+                .addValue("entries", entries)
+                .addValue("valueSum", valueSum)
+                .addValue("valueCount", valueCount);
+    }
+    
+    private RollupRow selectRollup(Long userId, boolean forUpdate) {
+        List<RollupRow> rows = namedParameterJdbcTemplate.query(forUpdate ? SELECT_ROLLUP + " FOR UPDATE" : SELECT_ROLLUP,
+            Map.of("userId", userId), (rs, row) -> new RollupRow(rs.getLong("symptom_count"), rs.getLong("mood_count"),
+                rs.getLong("period_count"), new RunningStats(rs.getLong("cycle_count"), rs.getDouble("cycle_length_mean"),
+                    rs.getDouble("cycle_length_m2"))));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+    
+    private record RollupRow(long symptomCount, long moodCount, long periodCount, RunningStats cycles) {
+    }
+}
@@ -1,17 +1,23 @@
 package com.reddot.api.service;
 
+import com.reddot.api.dto.DashboardDto;
 import com.reddot.api.model.*;
 import com.reddot.api.repository.*;
+import com.reddot.api.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Analytics for the current user. Without a date range, symptom and mood figures and the cycle
+ * statistics come from the user's {@link AnalyticsRollupService analytics rollup}; users without
+ * one yet, and date ranges, are counted from the history. The wellness score comes from the
+ * user's {@link WellnessScoreCache wellness window}.
+ */
 @Service
 public class AnalyticsService {
     
@@ -25,159 +31,173 @@ public class AnalyticsService {
     private MoodRepository moodRepository;
     
     @Autowired
-    private WellnessLogRepository wellnessLogRepository;
+    private WellnessScoreCache wellnessScoreCache;
     
     @Autowired
-    private UserRepository userRepository;
+    private AnalyticsRollupService analyticsRollupService;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
+    @Autowired
+    private CurrentUser currentUser;
+    
+    @Value("${prediction.history-limit:24}")
+    private int historyLimit;
     
+    /**
+     * Average, spread and count cover every cycle from the user's analytics rollup when there is
+     * one; {@code cycleLengths} lists the cycles of the latest {@code prediction.history-limit} periods.
+     */
     public Map<String, Object> getCycleConsistency() {
-        User user = getCurrentUser();
-        List<Period> periods = periodRepository.findByUserOrderByStartDateDesc(user);
+        UserSnapshot user = currentUser.snapshot();
+        List<PeriodDates> periods = periodRepository.findDatesByUser(currentUser.getReference(), PageRequest.of(0, historyLimit));
+        DashboardDto.CycleConsistency consistency = cycleConsistency(CycleStats.startDays(periods),
+            analyticsRollupService.cycleLengths(user.id()), user.averageCycleLength());
         
         Map<String, Object> result = new HashMap<>();
-        
-        if (periods.size() < 2) {
-            result.put("averageCycleLength", user.getAverageCycleLength() != null ? user.getAverageCycleLength() : 28);
-            result.put("consistency", "insufficient_data");
-            result.put("cycleLengths", new ArrayList<>());
-            return result;
+        result.put("averageCycleLength", consistency.getAverageCycleLength());
+        result.put("consistency", consistency.getConsistency());
+        result.put("cycleLengths", consistency.getCycleLengths());
+        if (consistency.getTotalCycles() != null) {
+            result.put("standardDeviation", consistency.getStandardDeviation());
+            result.put("totalCycles", consistency.getTotalCycles());
         }
-        
-        List<Integer> cycleLengths = new ArrayList<>();
-        for (int i = 0; i < periods.size() - 1; i++) {
-            LocalDate current = periods.get(i).getStartDate();
-            LocalDate next = periods.get(i + 1).getStartDate();
-            long days = ChronoUnit.DAYS.between(next, current);
-            if (days > 0 && days < 45) {
-                cycleLengths.add((int) days);
-            }
+        return result;
+    }
+    
+    /**
+     * Without a rollup every figure is from the recent start dates; the user's rollup, when it
+     * has any cycles, supplies the whole-history average, spread and count.
+     *
+     * @param recentStartDays the latest period starts as epoch days, most recent first
+     * @param allCycles the user's rollup statistics, or null
+     */
+    static DashboardDto.CycleConsistency cycleConsistency(int[] recentStartDays, RunningStats allCycles,
+                                                          Integer userAverage) {
+        if (recentStartDays.length < 2) {
+            return new DashboardDto.CycleConsistency(userAverage != null ? userAverage : CycleStats.DEFAULT_CYCLE_LENGTH,
+                null, "insufficient_data", List.of(), null);
         }
         
-        if (cycleLengths.isEmpty()) {
-            result.put("averageCycleLength", 28);
-            result.put("consistency", "insufficient_data");
-            result.put("cycleLengths", new ArrayList<>());
-            return result;
+        CycleStats stats = CycleStats.of(recentStartDays, userAverage);
+        List<Integer> recentLengths = Arrays.stream(stats.validLengths()).boxed().toList();
+        if (allCycles != null && allCycles.count() > 0) {
+            double stdDev = allCycles.standardDeviation();
+            return new DashboardDto.CycleConsistency((int) allCycles.mean(), Math.round(stdDev * 10.0) / 10.0,
+                consistency(stdDev), recentLengths, (int) allCycles.count());
         }
-        
-        double avg = cycleLengths.stream().mapToInt(Integer::intValue).average().orElse(28);
-        double variance = cycleLengths.stream()
-                .mapToDouble(length -> Math.pow(length - avg, 2))
-                .average().orElse(0);
-        double stdDev = Math.sqrt(variance);
-        
-        String consistency;
-        if (stdDev < 3) {
-            consistency = "very_regular";
-        } else if (stdDev < 7) {
-            consistency = "regular";
-        } else {
-            consistency = "irregular";
+        if (stats.validCount() == 0) {
+            return new DashboardDto.CycleConsistency(CycleStats.DEFAULT_CYCLE_LENGTH, null, "insufficient_data",
+                List.of(), null);
         }
+        double stdDev = stats.standardDeviation();
+        return new DashboardDto.CycleConsistency((int) stats.mean(), Math.round(stdDev * 10.0) / 10.0,
+            consistency(stdDev), recentLengths, stats.validCount());
+    }
+    
+    public Map<String, Object> getSymptomFrequency(LocalDate startDate, LocalDate endDate) {
+        AnalyticsRollupService.Rollup rollup = startDate == null && endDate == null
+                ? analyticsRollupService.read(currentUser.getId()) : null;
+        DashboardDto.SymptomFrequency symptoms = symptomFrequency(rollup != null ? rollup.symptoms()
+                : symptomRepository.countByType(currentUser.getReference(), startDate, endDate));
         
-        result.put("averageCycleLength", (int) avg);
-        result.put("standardDeviation", Math.round(stdDev * 10.0) / 10.0);
-        result.put("consistency", consistency);
-        result.put("cycleLengths", cycleLengths);
-        result.put("totalCycles", cycleLengths.size());
+        Map<String, Object> result = new HashMap<>();
+        result.put("frequency", symptoms.getFrequency());
+        result.put("averageSeverity", symptoms.getAverageSeverity());
+        result.put("totalSymptoms", symptoms.getTotalSymptoms());
+        result.put("uniqueSymptoms", symptoms.getUniqueSymptoms());
         
         return result;
     }
     
-    public Map<String, Object> getSymptomFrequency() {
-        User user = getCurrentUser();
-        List<Symptom> symptoms = symptomRepository.findByUserOrderByDateDesc(user);
-        
-        Map<String, Long> frequency = symptoms.stream()
-                .collect(Collectors.groupingBy(Symptom::getSymptomType, Collectors.counting()));
+    public Map<String, Object> getMoodTrends(LocalDate startDate, LocalDate endDate) {
+        AnalyticsRollupService.Rollup rollup = startDate == null && endDate == null
+                ? analyticsRollupService.read(currentUser.getId()) : null;
+        DashboardDto.MoodTrends moods = moodTrends(rollup != null ? rollup.moods()
+                : moodRepository.countByType(currentUser.getReference(), startDate, endDate));
         
         Map<String, Object> result = new HashMap<>();
-        result.put("frequency", frequency);
-        result.put("totalSymptoms", symptoms.size());
-        result.put("uniqueSymptoms", frequency.size());
+        result.put("moodDistribution", moods.getMoodDistribution());
+        result.put("totalMoods", moods.getTotalMoods());
+        result.put("averageIntensity", moods.getAverageIntensity());
         
         return result;
     }
     
-    public Map<String, Object> getMoodTrends() {
-        User user = getCurrentUser();
-        List<Mood> moods = moodRepository.findByUserOrderByDateDesc(user);
-        
-        Map<String, Long> moodCounts = moods.stream()
-                .collect(Collectors.groupingBy(m -> m.getMoodType().name(), Collectors.counting()));
+    static DashboardDto.SymptomFrequency symptomFrequency(List<SymptomTypeCount> counts) {
+        Map<String, Long> frequency = new HashMap<>();
+        Map<String, Double> averageSeverity = new HashMap<>();
+        long total = 0;
+        for (SymptomTypeCount count : counts) {
+            frequency.put(count.symptomType(), count.count());
+            if (count.averageSeverity() != null) {
+                averageSeverity.put(count.symptomType(), Math.round(count.averageSeverity() * 10.0) / 10.0);
+            }
+            total += count.count();
+        }
+        return new DashboardDto.SymptomFrequency(frequency, averageSeverity, total, frequency.size());
+    }
+    
+    static DashboardDto.MoodTrends moodTrends(List<MoodTypeCount> counts) {
+        Map<String, Long> distribution = new HashMap<>();
+        long total = 0;
+        long rated = 0;
+        double intensitySum = 0;
+        for (MoodTypeCount count : counts) {
+            if (count.moodType() != null) {
+                distribution.put(count.moodType().name(), count.count());
+            }
+            total += count.count();
+            if (count.averageIntensity() != null) {
+                rated += count.rated();
+                intensitySum += count.averageIntensity() * count.rated();
+            }
+        }
+        return new DashboardDto.MoodTrends(distribution, total, rated > 0 ? intensitySum / rated : 0);
+    }
+    
+    public Map<String, Object> getWellnessScore() {
+        DashboardDto.WellnessScore score = wellnessScoreCache.score(currentUser.getId(), LocalDate.now());
         
         Map<String, Object> result = new HashMap<>();
-        result.put("moodDistribution", moodCounts);
-        result.put("totalMoods", moods.size());
-        result.put("averageIntensity", moods.stream()
-                .mapToInt(Mood::getIntensity)
-                .average()
-                .orElse(0));
+        result.put("score", score.getScore());
+        result.put("level", score.getLevel());
+        result.put("logsCount", score.getLogsCount());
         
         return result;
     }
     
-    public Map<String, Object> getWellnessScore() {
-        User user = getCurrentUser();
-        LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-        List<WellnessLog> logs = wellnessLogRepository.findByUserAndDateRange(user, thirtyDaysAgo, LocalDate.now());
-        
+    static String consistency(double standardDeviation) {
+        if (standardDeviation < 3) {
+            return "very_regular";
+        } else if (standardDeviation < 7) {
+            return "regular";
+        }
+        return "irregular";
+    }
+    
+    /**
+     * Score from the average water intake, sleep and exercise of logged days; an average is 0 if
+     * no log has a value for it. Only meaningful if there is at least one log (the score is 50 otherwise).
+     */
+    static double wellnessScore(double avgWater, double avgSleep, double avgExercise) {
         double score = 50.0; // Base score
         
-        if (!logs.isEmpty()) {
-            double avgWater = logs.stream()
-                    .filter(l -> l.getWaterIntake() != null)
-                    .mapToInt(WellnessLog::getWaterIntake)
-                    .average().orElse(0);
-            if (avgWater >= 2000) score += 15;
-            else if (avgWater >= 1500) score += 10;
-            
-            double avgSleep = logs.stream()
-                    .filter(l -> l.getSleepHours() != null)
-                    .mapToInt(WellnessLog::getSleepHours)
-                    .average().orElse(0);
-            if (avgSleep >= 7 && avgSleep <= 9) score += 20;
-            else if (avgSleep >= 6) score += 10;
-            
-            double avgExercise = logs.stream()
-                    .filter(l -> l.getExerciseMinutes() != null)
-                    .mapToInt(WellnessLog::getExerciseMinutes)
-                    .average().orElse(0);
-            if (avgExercise >= 150) score += 15;
-            else if (avgExercise >= 75) score += 10;
-        }
+        if (avgWater >= 2000) score += 15;
+        else if (avgWater >= 1500) score += 10;
         
-        score = Math.min(100, Math.max(0, score));
+        if (avgSleep >= 7 && avgSleep <= 9) score += 20;
+        else if (avgSleep >= 6) score += 10;
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("score", Math.round(score));
-        result.put("level", getWellnessLevel(score));
-        result.put("logsCount", logs.size());
+        if (avgExercise >= 150) score += 15;
+        else if (avgExercise >= 75) score += 10;
         
-        return result;
+        return Math.min(100, Math.max(0, score));
     }
     
-    private String getWellnessLevel(double score) {
+    static String getWellnessLevel(double score) {
         if (score >= 80) return "excellent";
         if (score >= 60) return "good";
         if (score >= 40) return "fair";
         return "needs_improvement";
     }
-    
-    public Map<String, Object> getDashboardData() {
-        Map<String, Object> dashboard = new HashMap<>();
-        dashboard.put("cycleConsistency", getCycleConsistency());
-        dashboard.put("symptomFrequency", getSymptomFrequency());
-        dashboard.put("moodTrends", getMoodTrends());
-        dashboard.put("wellnessScore", getWellnessScore());
-        return dashboard;
-    }
 }
 
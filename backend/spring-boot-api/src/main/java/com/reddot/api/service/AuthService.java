@@ -3,10 +3,12 @@ package com.reddot.api.service;
 import com.reddot.api.dto.*;
 import com.reddot.api.model.OtpToken;
 import com.reddot.api.model.User;
-import com.reddot.api.repository.OtpTokenRepository;
 import com.reddot.api.repository.UserRepository;
 import com.reddot.api.security.JwtTokenProvider;
+import com.reddot.api.security.TokenClaims;
+import com.reddot.api.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -16,8 +18,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.Random;
 import java.util.UUID;
 
 @Service
@@ -36,17 +36,19 @@ public class AuthService {
     private JwtTokenProvider tokenProvider;
     
     @Autowired
-    private OtpTokenRepository otpTokenRepository;
+    private OtpService otpService;
     
     @Autowired
     private EmailService emailService;
     
+    @Autowired
+    private UserCache userCache;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
     @Transactional
     public AuthResponse signup(SignupRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email already exists");
-        }
-        
         User user = new User();
         user.setEmail(request.getEmail());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
@@ -58,17 +60,18 @@ public class AuthService {
         user.setEmailVerificationExpiry(LocalDateTime.now().plusDays(1));
         user.setActive(true);
         
-        user = userRepository.save(user);
+        // The unique index on email is the duplicate check, so signup costs no extra SELECT
+        try {
+            user = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Email already exists");
+        }
         
-        // Send verification email
+        // Queued in the outbox and delivered after commit by EmailOutboxDispatcher
         emailService.sendVerificationEmail(user.getEmail(), user.getEmailVerificationToken());
         
-        // Auto-login after signup
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
-        
-        return generateAuthResponse(authentication);
+        // Auto-login after signup: the password was just hashed, so there is nothing to verify
+        return generateAuthResponse(UserPrincipal.from(user), UserSnapshot.from(user));
     }
     
     public AuthResponse login(AuthRequest request) {
@@ -76,16 +79,24 @@ public class AuthService {
             new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
         );
         
-        return generateAuthResponse(authentication);
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        return generateAuthResponse(principal, snapshotOf(principal));
     }
     
-    private AuthResponse generateAuthResponse(Authentication authentication) {
-        String accessToken = tokenProvider.generateToken(authentication);
-        String username = authentication.getName();
-        String refreshToken = tokenProvider.generateRefreshToken(username);
-        
-        User user = userRepository.findByEmail(username)
+    private AuthResponse generateAuthResponse(UserPrincipal principal, UserSnapshot user) {
+        // Every login starts a new session; refreshes keep rotating within it
+        String sessionId = UUID.randomUUID().toString();
+        String refreshToken = refreshTokenService.issue(principal, sessionId);
+        return buildAuthResponse(principal, user, sessionId, refreshToken);
+    }
+    
+    private UserSnapshot snapshotOf(UserPrincipal principal) {
+        return userCache.getByEmail(principal.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+    
+    private AuthResponse buildAuthResponse(UserPrincipal principal, UserSnapshot user, String sessionId, String refreshToken) {
+        String accessToken = tokenProvider.generateToken(principal, sessionId);
         
         UserProfileDto userProfile = mapToUserProfileDto(user);
         
@@ -98,39 +109,34 @@ public class AuthService {
         return response;
     }
     
+    @Transactional
     public void forgotPassword(String email) {
-        User user = userRepository.findByEmail(email)
+        userCache.getByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
         
-        String otp = generateOtp();
-        OtpToken otpToken = new OtpToken();
-        otpToken.setEmail(email);
-        otpToken.setOtp(otp);
-        otpToken.setType(OtpToken.OtpType.PASSWORD_RESET);
-        otpToken.setExpiryTime(LocalDateTime.now().plusMinutes(15));
-        otpToken.setUsed(false);
-        
-        otpTokenRepository.save(otpToken);
+        String otp = otpService.issue(email, OtpToken.OtpType.PASSWORD_RESET);
         
         emailService.sendPasswordResetOtp(email, otp);
     }
     
     public void resetPassword(String email, String otp, String newPassword) {
-        OtpToken otpToken = otpTokenRepository.findByEmailAndOtpAndUsedFalse(email, otp)
-                .orElseThrow(() -> new RuntimeException("Invalid or expired OTP"));
-        
-        if (otpToken.getExpiryTime().isBefore(LocalDateTime.now())) {
+        OtpService.Result result = otpService.verify(email, OtpToken.OtpType.PASSWORD_RESET, otp);
+        if (result == OtpService.Result.EXPIRED) {
             throw new RuntimeException("OTP has expired");
         }
+        if (result == OtpService.Result.TOO_MANY_ATTEMPTS) {
+            throw new RuntimeException("Too many attempts, please request a new OTP");
+        }
+        if (result != OtpService.Result.VALID) {
+            throw new RuntimeException("Invalid or expired OTP");
+        }
         
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
-        
-        otpToken.setUsed(true);
-        otpTokenRepository.save(otpToken);
+        userCache.evict(user);
     }
     
     public void verifyEmail(String token) {
@@ -144,50 +150,68 @@ public class AuthService {
         user.setEmailVerified(true);
         user.setEmailVerificationToken(null);
         userRepository.save(user);
+        userCache.evict(user);
     }
     
     public AuthResponse refreshToken(String refreshToken) {
-        if (!tokenProvider.validateToken(refreshToken)) {
-            throw new RuntimeException("Invalid refresh token");
-        }
+        TokenClaims claims = tokenProvider.verify(refreshToken)
+                .filter(TokenClaims::isRefreshToken)
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
         
-        String username = tokenProvider.getUsernameFromToken(refreshToken);
-        User user = userRepository.findByEmail(username)
+        String username = claims.subject();
+        UserSnapshot user = userCache.getByEmail(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        Authentication authentication = new UsernamePasswordAuthenticationToken(
-            user.getEmail(), null, Collections.emptyList()
-        );
+        if (!Boolean.TRUE.equals(user.active())) {
+            throw new RuntimeException("Account is disabled");
+        }
+        
+        UserPrincipal principal = UserPrincipal.from(user);
+        if (claims.jti() == null && claims.sessionId() == null) {
+            // Issued before rotation: accepted once and moved into a session of its own
+            String sessionId = UUID.randomUUID().toString();
+            try {
+                String rotated = refreshTokenService.rotateLegacy(refreshToken, claims, principal, sessionId);
+                return buildAuthResponse(principal, user, sessionId, rotated);
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Invalid refresh token");
+            }
+        }
+        
+        String rotated = refreshTokenService.rotate(claims, principal)
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
         
-        return generateAuthResponse(authentication);
+        return buildAuthResponse(principal, user, claims.sessionId(), rotated);
     }
     
-    private String generateOtp() {
-        Random random = new Random();
-        return String.format("%06d", random.nextInt(999999));
+    public void logout(String refreshToken) {
+        tokenProvider.verify(refreshToken)
+                .filter(TokenClaims::isRefreshToken)
+                .map(TokenClaims::sessionId)
+                .ifPresent(refreshTokenService::revokeSession);
     }
     
-    private UserProfileDto mapToUserProfileDto(User user) {
+    private UserProfileDto mapToUserProfileDto(UserSnapshot user) {
         UserProfileDto dto = new UserProfileDto();
-        dto.setId(user.getId());
-        dto.setEmail(user.getEmail());
-        dto.setFirstName(user.getFirstName());
-        dto.setLastName(user.getLastName());
-        dto.setDateOfBirth(user.getDateOfBirth());
-        dto.setAge(user.getAge());
-        dto.setHeight(user.getHeight());
-        dto.setWeight(user.getWeight());
-        dto.setAverageCycleLength(user.getAverageCycleLength());
-        dto.setAveragePeriodLength(user.getAveragePeriodLength());
-        dto.setLastPeriodStart(user.getLastPeriodStart());
-        dto.setHealthConditions(user.getHealthConditions());
-        dto.setActivityLevel(user.getActivityLevel());
-        dto.setDietType(user.getDietType());
-        dto.setConsentGiven(user.getConsentGiven());
-        dto.setDataSharingEnabled(user.getDataSharingEnabled());
-        dto.setAnonymousMode(user.getAnonymousMode());
-        dto.setRole(user.getRole().name());
-        dto.setEmailVerified(user.getEmailVerified());
+        dto.setId(user.id());
+        dto.setEmail(user.email());
+        dto.setFirstName(user.firstName());
+        dto.setLastName(user.lastName());
+        dto.setDateOfBirth(user.dateOfBirth());
+        dto.setAge(user.age());
+        dto.setHeight(user.height());
+        dto.setWeight(user.weight());
+        dto.setAverageCycleLength(user.averageCycleLength());
+        dto.setAveragePeriodLength(user.averagePeriodLength());
+        dto.setLastPeriodStart(user.lastPeriodStart());
+        dto.setHealthConditions(user.healthConditions());
+        dto.setActivityLevel(user.activityLevel());
+        dto.setDietType(user.dietType());
+        dto.setConsentGiven(user.consentGiven());
+        dto.setDataSharingEnabled(user.dataSharingEnabled());
+        dto.setAnonymousMode(user.anonymousMode());
+        dto.setRole(user.role().name());
+        dto.setEmailVerified(user.emailVerified());
         return dto;
     }
 }
@@ -0,0 +1,165 @@
+package com.reddot.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A job that runs at most once at a time on the application task executor and reports its
+ * progress to the admin endpoints: whether it is running, the counters registered by the subclass
+ * (reset on every start) and when the last run started and finished.
+ */
+public abstract class BackgroundJob {
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+    
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final String name;
+    private final Map<String, AtomicLong> counters = new LinkedHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    
+    protected BackgroundJob(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Starts a run in the background; returns false if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        counters.values().forEach(counter -> counter.set(0));
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        try {
+            taskExecutor.execute(this::runOnce);
+        } catch (TaskRejectedException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        counters.forEach((counter, value) -> status.put(counter, value.get()));
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        return status;
+    }
+    
+    protected abstract void execute() throws InterruptedException;
+    
+    /**
+     * Called once a run has ended, however it ended, before the job can be started again.
+     */
+    protected void finished() {
+        Map<String, Object> status = getStatus();
+        status.remove("running");
+        log.info("{} finished: {}", name, status);
+    }
+    
+    /**
+     * Registers a counter reported under {@code counter}; call from a field initializer.
+     */
+    protected AtomicLong counter(String counter) {
+        return counters.computeIfAbsent(counter, c -> new AtomicLong());
+    }
+    
+    /**
+     * Seconds from the start of the current or last run to its end, or to now while it runs.
+     */
+    protected double elapsedSeconds() {
+        if (startedAt == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        return Math.max(1, Duration.between(startedAt, end).toMillis()) / 1000.0;
+    }
+    
+    /**
+     * Hands {@code chunk} the ids returned by {@code idsAfter} in id-ordered chunks of
+     * {@code chunkSize} until they run out, on {@code parallelism} threads with at most two chunks
+     * per thread in memory, and returns once every chunk is done. A parallelism of 1 runs the
+     * chunks on the calling thread.
+     */
+    protected static void forEachChunk(BiFunction<Long, Pageable, List<Long>> idsAfter, int chunkSize,
+                                       int parallelism, Consumer<List<Long>> chunk) throws InterruptedException {
+        ExecutorService workers = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        try {
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = idsAfter.apply(lastId, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                
+                if (workers == null) {
+                    chunk.accept(ids);
+                    continue;
+                }
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        chunk.accept(ids);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            if (workers != null) {
+                workers.shutdown();
+                workers.awaitTermination(1, TimeUnit.DAYS);
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+    
+    private void runOnce() {
+        try {
+            execute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("{} stopped", name, e);
+        } finally {
+            finishedAt = LocalDateTime.now();
+            try {
+                finished();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
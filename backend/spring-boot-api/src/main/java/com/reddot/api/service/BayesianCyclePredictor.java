@@ -0,0 +1,103 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Predicts from a {@link CycleLengthPosterior} over the user's cycle length rather than from a
+ * heuristic. The prior is the user's {@link PopulationPriors} cell, centered on the length the user
+ * entered if any (the history form only knows that length); the posterior comes from the
+ * {@link CycleModel} kept on the user row, so {@link #predict(UserSnapshot)} reads no periods at
+ * all. Confidence is the predictive probability that the period starts within two days of the
+ * predicted date, and the 80% predictive interval is returned as earliest and latest start.
+ */
+@Component
+public class BayesianCyclePredictor implements CyclePredictor {
+    
+    public static final String NAME = "bayesian";
+    
+    static final double INTERVAL_LEVEL = 0.8;
+    static final int CONFIDENCE_DAYS = 2;
+    static final int MAX_HALF_WIDTH = 30; // days
+    static final double IRREGULAR_DEVIATION = 8; // days; about CycleStats' 7-day mean absolute deviation
+    
+    @Autowired
+    private PopulationPriors populationPriors;
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    /**
+     * Folds the given history into a model first, so costs O(n); used by batch jobs and
+     * benchmarks that hold histories anyway.
+     */
+    @Override
+    public CyclePredictionDto predict(CycleHistory history) {
+        if (history.size() == 0) {
+            throw new IllegalArgumentException("At least one period is required");
+        }
+        return predict(CycleModel.of(history.startDays()), CycleLengthPosterior.Prior.around(history.averageCycleLength()));
+    }
+    
+    /**
+     * O(1) prediction from the user's stored model; null if the model was never built or has no
+     * periods.
+     */
+    public CyclePredictionDto predict(UserSnapshot user) {
+        CycleModel model = user.cycleModel();
+        if (model == null || model.periodCount() == 0) {
+            return null;
+        }
+        return predict(model, populationPriors.priorFor(user));
+    }
+    
+    CyclePredictionDto predict(CycleModel model, CycleLengthPosterior.Prior prior) {
+        CycleLengthPosterior posterior = CycleLengthPosterior.of(prior, model);
+        int cycleLength = (int) Math.round(posterior.mean());
+        int halfWidth = posterior.halfWidth(cycleLength, INTERVAL_LEVEL, MAX_HALF_WIDTH);
+        double confidence = posterior.probabilityWithin(cycleLength, CONFIDENCE_DAYS);
+        boolean irregular = posterior.standardDeviation() > IRREGULAR_DEVIATION;
+        
+        LocalDate predictedStart = model.lastStart().plusDays(cycleLength);
+        LocalDate ovulation = predictedStart.minusDays(14);
+        
+        CyclePredictionDto dto = new CyclePredictionDto();
+        dto.setPredictedPeriodStart(predictedStart);
+        dto.setPredictedPeriodStartEarliest(predictedStart.minusDays(halfWidth));
+        dto.setPredictedPeriodStartLatest(predictedStart.plusDays(halfWidth));
+        dto.setPredictedOvulationDate(ovulation);
+        dto.setFertileWindowStart(ovulation.minusDays(5));
+        dto.setFertileWindowEnd(ovulation.plusDays(1));
+        dto.setPredictionConfidence(Math.round(confidence * 100) / 100.0);
+        dto.setIsIrregular(irregular);
+        dto.setEstimatedCycleLength(cycleLength);
+        dto.setExplanation(explanation(model, cycleLength, halfWidth, confidence, irregular));
+        return dto;
+    }
+    
+    private static String explanation(CycleModel model, int cycleLength, int halfWidth, double confidence,
+                                      boolean irregular) {
+        StringBuilder explanation = new StringBuilder();
+        if (model.cycleCount() < 2) {
+            explanation.append("We're still learning your cycle pattern. ");
+        } else {
+            explanation.append("Based on your ").append(model.periodCount()).append(" logged periods, ");
+        }
+        explanation.append("your next period is expected after about ").append(cycleLength).append(" days");
+        if (halfWidth > 0) {
+            explanation.append(", most likely within ").append(halfWidth).append(" days either side");
+        }
+        explanation.append(". ");
+        if (irregular) {
+            explanation.append("Your cycles show some variation, which is normal. ");
+        }
+        explanation.append("Chance it starts within ").append(CONFIDENCE_DAYS).append(" days of the predicted date: ")
+                .append((int) Math.round(confidence * 100)).append("%.");
+        return explanation.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.reddot.api.service;
+
+import com.reddot.api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills {@code cycles} and rebuilds the {@link CycleModel} for every existing user. Users are read in id-ordered chunks and the chunks
+ * are processed on {@code app.cycle-backfill.parallelism} threads, one transaction per user so a
+ * bad history only skips that user, with the prediction computed after it. Safe to re-run:
+ * unchanged rows are not written again.
+ */
+@Service
+public class CycleBackfillJob extends BackgroundJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(CycleBackfillJob.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CycleMaterializer cycleMaterializer;
+    
+    @Autowired
+    private CycleModelService cycleModelService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.cycle-backfill.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${app.cycle-backfill.parallelism:4}")
+    private int parallelism;
+    
+    private final AtomicLong processedUsers = counter("processedUsers");
+    private final AtomicLong changedRows = counter("changedRows");
+    private final AtomicLong failedUsers = counter("failedUsers");
+    
+    public CycleBackfillJob() {
+        super("Cycle backfill");
+    }
+    
+    @Override
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = super.getStatus();
+        double seconds = elapsedSeconds();
+        if (seconds > 0) {
+            status.put("usersPerSecond", (long) (processedUsers.get() / seconds));
+        }
+        return status;
+    }
+    
+    @Override
+    protected void execute() throws InterruptedException {
+        forEachChunk(userRepository::findIdsAfter, chunkSize, parallelism, this::processChunk);
+    }
+    
+    private void processChunk(List<Long> ids) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Long id : ids) {
+            try {
+                Integer changed = transaction.execute(status -> userRepository.findById(id)
+                        .map(user -> {
+                            cycleModelService.rebuild(user);
+                            return cycleMaterializer.materialize(user);
+                        })
+                        .orElse(0));
+                // Outside the transaction so no connection is held while the engine runs
+                if (cycleMaterializer.refreshPrediction(id)) {
+                    changed = (changed != null ? changed : 0) + 1;
+                }
+                changedRows.addAndGet(changed != null ? changed : 0);
+                processedUsers.incrementAndGet();
+            } catch (RuntimeException e) {
+                failedUsers.incrementAndGet();
+                log.warn("Cycle backfill failed for user {}", id, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.reddot.api.service;
+
+import java.util.List;
+
+/**
+ * Input to a {@link CyclePredictor}: period start dates as epoch days, most recent first, plus
+ * the averages the user entered during onboarding.
+ */
+public record CycleHistory(
+    Long userId,
+    int[] startDays,
+    Integer averageCycleLength,
+    Integer averagePeriodLength
+) {
+    
+    /**
+     * @param periods ordered by start date, most recent first
+     */
+    public static CycleHistory of(UserSnapshot user, List<PeriodDates> periods) {
+        return new CycleHistory(user.id(), CycleStats.startDays(periods), user.averageCycleLength(),
+            user.averagePeriodLength());
+    }
+    
+    public int size() {
+        return startDays.length;
+    }
+}
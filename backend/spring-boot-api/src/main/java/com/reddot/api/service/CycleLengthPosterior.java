@@ -0,0 +1,178 @@
+package com.reddot.api.service;
+
+/**
+ * Normal-inverse-gamma posterior over a user's cycle length (unknown mean and variance), updated
+ * from the sums in a {@link CycleModel}. The predictive distribution of the next cycle length is a
+ * Student t with {@code 2 * shape} degrees of freedom, so intervals are wide for short histories
+ * and narrow as cycles accumulate.
+ */
+public final class CycleLengthPosterior {
+    
+    /**
+     * @param mean prior cycle length in days
+     * @param strength how many cycles the prior mean is worth
+     * @param shape inverse-gamma shape of the variance
+     * @param rate inverse-gamma rate of the variance; {@code rate / (shape - 1)} is the prior variance
+     */
+    public record Prior(double mean, double strength, double shape, double rate) {
+        
+        static final double DEFAULT_STRENGTH = 1;
+        static final double DEFAULT_SHAPE = 2;
+        static final double DEFAULT_RATE = 12; // about 3.5 days standard deviation
+        
+        /**
+         * Centered on the cycle length the user entered, else 28 days.
+         */
+        public static Prior around(Integer userAverage) {
+            return new Prior(userAverage != null ? userAverage : CycleStats.DEFAULT_CYCLE_LENGTH,
+                DEFAULT_STRENGTH, DEFAULT_SHAPE, DEFAULT_RATE);
+        }
+    }
+    
+    private static final double TINY = 1e-30;
+    private static final double[] LANCZOS = {
+        0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+        -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6,
+        1.5056327351493116e-7
+    };
+    
+    private final double mean;
+    private final double strength;
+    private final double shape;
+    private final double rate;
+    
+    private CycleLengthPosterior(double mean, double strength, double shape, double rate) {
+        this.mean = mean;
+        this.strength = strength;
+        this.shape = shape;
+        this.rate = rate;
+    }
+    
+    public static CycleLengthPosterior of(Prior prior, CycleModel model) {
+        long n = model.cycleCount();
+        double strength = prior.strength() + n;
+        double mean = (prior.strength() * prior.mean() + model.lengthSum()) / strength;
+        double shape = prior.shape() + n / 2.0;
+        double rate = prior.rate();
+        if (n > 0) {
+            double sampleMean = (double) model.lengthSum() / n;
+            // Exact integer numerator for the sum of squared deviations
+            double squaredDeviations = (double) (n * model.lengthSumOfSquares() - model.lengthSum() * model.lengthSum()) / n;
+            double shift = sampleMean - prior.mean();
+            rate += squaredDeviations / 2 + prior.strength() * n * shift * shift / (2 * strength);
+        }
+        return new CycleLengthPosterior(mean, strength, shape, rate);
+    }
+    
+    /**
+     * Posterior mean cycle length in days.
+     */
+    public double mean() {
+        return mean;
+    }
+    
+    /**
+     * Expected standard deviation of the user's cycle lengths.
+     */
+    public double standardDeviation() {
+        return Math.sqrt(rate / (shape - 1));
+    }
+    
+    public double degreesOfFreedom() {
+        return 2 * shape;
+    }
+    
+    /**
+     * Scale of the predictive t distribution of the next cycle length.
+     */
+    public double predictiveScale() {
+        return Math.sqrt(rate * (strength + 1) / (shape * strength));
+    }
+    
+    /**
+     * Probability that the next cycle length falls in {@code [from, to]} days.
+     */
+    public double probabilityBetween(double from, double to) {
+        double scale = predictiveScale();
+        double dof = degreesOfFreedom();
+        return studentCdf((to - mean) / scale, dof) - studentCdf((from - mean) / scale, dof);
+    }
+    
+    /**
+     * Probability that the next cycle is within {@code days} whole days of {@code length}.
+     */
+    public double probabilityWithin(int length, int days) {
+        return probabilityBetween(length - days - 0.5, length + days + 0.5);
+    }
+    
+    /**
+     * Smallest whole number of days {@code d} such that the next cycle is within {@code length +/- d}
+     * with at least the given probability, capped at {@code maxDays}.
+     */
+    public int halfWidth(int length, double level, int maxDays) {
+        int days = 0;
+        while (days < maxDays && probabilityWithin(length, days) < level) {
+            days++;
+        }
+        return days;
+    }
+    
+    static double studentCdf(double t, double dof) {
+        double tail = 0.5 * regularizedBeta(dof / (dof + t * t), dof / 2, 0.5);
+        return t >= 0 ? 1 - tail : tail;
+    }
+    
+    static double regularizedBeta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x));
+        // The continued fraction converges fast on this side; use the symmetry otherwise
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * betaContinuedFraction(x, a, b) / a;
+        }
+        return 1 - front * betaContinuedFraction(1 - x, b, a) / b;
+    }
+    
+    // Lentz's method, as in Numerical Recipes' betacf
+    private static double betaContinuedFraction(double x, double a, double b) {
+        double c = 1;
+        double d = nonZero(1 - (a + b) * x / (a + 1));
+        d = 1 / d;
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+            double even = m * (b - m) * x / ((a - 1 + m2) * (a + m2));
+            d = 1 / nonZero(1 + even * d);
+            c = nonZero(1 + even / c);
+            h *= d * c;
+            double odd = -(a + m) * (a + b + m) * x / ((a + m2) * (a + 1 + m2));
+            d = 1 / nonZero(1 + odd * d);
+            c = nonZero(1 + odd / c);
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-12) {
+                break;
+            }
+        }
+        return h;
+    }
+    
+    private static double nonZero(double value) {
+        return Math.abs(value) < TINY ? TINY : value;
+    }
+    
+    // Lanczos approximation (g = 7), good to about 15 digits for x >= 0.5
+    static double logGamma(double x) {
+        x -= 1;
+        double sum = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        double t = x + 7.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+}
@@ -0,0 +1,330 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.model.Cycle;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.CycleRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code cycles} in step with a user's periods: one row per period start, closed rows
+ * carrying the actual cycle and period length, and the latest row carrying the current
+ * prediction. A new latest period only touches the two latest rows and an edit that keeps the
+ * start only its own; periods moved, deleted or logged out of order diff the whole history against
+ * what is stored, so only changed rows are written. Closed rows keep the
+ * prediction they had while they were current.
+ * <p>
+ * The prediction is computed after the period write commits, on one of
+ * {@code prediction.refresh-threads} single-threaded refreshers chosen by user id, so no connection
+ * or row lock is held while the engine runs and a user's refreshes run in order. Until it lands,
+ * {@link PredictionService} computes the prediction on read.
+ */
+@Service
+public class CycleMaterializer {
+    
+    private static final Logger log = LoggerFactory.getLogger(CycleMaterializer.class);
+    
+    @Autowired
+    private CycleRepository cycleRepository;
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PredictionService predictionService;
+    
+    @Autowired
+    private PredictionCache predictionCache;
+    
+    @Value("${prediction.refresh-threads:4}")
+    private int refreshThreads;
+    
+    private ExecutorService[] refreshers;
+    
+    // Users with a refresh queued but not started; a queued refresh reads the latest history anyway
+    private final Set<Long> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    public void init() {
+        refreshers = new ExecutorService[refreshThreads];
+        for (int i = 0; i < refreshThreads; i++) {
+            String name = "cycle-prediction-" + (i + 1);
+            refreshers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        for (ExecutorService refresher : refreshers) {
+            refresher.shutdownNow();
+        }
+    }
+    
+    /**
+     * Call after a period starting on {@code start} was saved, in the same transaction. A new
+     * latest period closes the previous row and opens its own from the two latest starts; a period
+     * logged before the latest, on the same day as another, or for a user whose rows were never
+     * filled goes through {@link #materialize}. Refreshes the prediction after commit.
+     *
+     * @return the number of rows inserted or updated
+     */
+    @Transactional
+    public int periodAdded(User user, LocalDate start) {
+        int changed = addLatest(user, start);
+        refreshPredictionAfterCommit(user.getId());
+        return changed;
+    }
+    
+    /**
+     * Call after a period's end date or details were edited without moving its start, in the same
+     * transaction: updates the period length on that one row, or goes through {@link #materialize}
+     * if the row is missing. Refreshes the prediction after commit.
+     */
+    @Transactional
+    public int periodEdited(User user, PeriodDates period) {
+        Cycle cycle = cycleRepository.findByUserAndCycleStartDate(user, period.startDate()).orElse(null);
+        int changed;
+        if (cycle == null) {
+            changed = materialize(user);
+        } else {
+            LocalDate nextStart = cycle.getCycleEndDate() != null ? cycle.getCycleEndDate().plusDays(1) : null;
+            changed = setBounds(cycle, period, nextStart) ? 1 : 0;
+            if (changed > 0) {
+                cycleRepository.save(cycle);
+            }
+        }
+        refreshPredictionAfterCommit(user.getId());
+        return changed;
+    }
+    
+    /**
+     * Call after a period was moved or deleted, in the same transaction: rediffs the whole history
+     * and refreshes the prediction after commit.
+     */
+    @Transactional
+    public int periodsChanged(User user) {
+        int changed = materialize(user);
+        refreshPredictionAfterCommit(user.getId());
+        return changed;
+    }
+    
+    /**
+     * Recomputes the user's rows from their whole history in the caller's transaction, so they
+     * commit together with the period change that triggered them. Does not touch predictions.
+     *
+     * @return the number of rows inserted, updated or deleted
+     */
+    @Transactional
+    public int materialize(User user) {
+        List<PeriodDates> periods = periodRepository.findDatesByUser(user, Pageable.unpaged());
+        Map<LocalDate, Cycle> existing = new HashMap<>();
+        for (Cycle cycle : cycleRepository.findByUserOrderByCycleStartDateDesc(user)) {
+            existing.put(cycle.getCycleStartDate(), cycle);
+        }
+        
+        int changed = 0;
+        LocalDate nextStart = null;
+        for (PeriodDates period : periods) {
+            LocalDate start = period.startDate();
+            if (start.equals(nextStart)) {
+                continue; // two periods logged on the same day make one cycle
+            }
+            
+            Cycle cycle = existing.remove(start);
+            boolean isNew = cycle == null;
+            if (isNew) {
+                cycle = newCycle(user, start);
+            }
+            if (setBounds(cycle, period, nextStart) || isNew) {
+                cycleRepository.save(cycle);
+                changed++;
+            }
+            nextStart = start;
+        }
+        
+        // Cycles whose period was deleted or moved
+        if (!existing.isEmpty()) {
+            cycleRepository.deleteAll(existing.values());
+            changed += existing.size();
+        }
+        return changed;
+    }
+    
+    /**
+     * Queues {@link #refreshPrediction} for after the current transaction commits, or straight away
+     * outside one.
+     */
+    public void refreshPredictionAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRefresh(userId);
+                }
+            });
+        } else {
+            queueRefresh(userId);
+        }
+    }
+    
+    /**
+     * Predicts from the user's latest {@code prediction.history-limit} periods and stores the
+     * answer on their current row with one UPDATE if it changed. Call outside a transaction: the
+     * engine may take up to {@code prediction.latency-budget}.
+     *
+     * @return true if the row was updated
+     */
+    public boolean refreshPrediction(Long userId) {
+        User user = userRepository.findWithHealthConditionsById(userId).orElse(null);
+        if (user == null) {
+            return false;
+        }
+        List<PeriodDates> periods = predictionService.recentPeriods(user);
+        if (periods.isEmpty()) {
+            return false;
+        }
+        LocalDate currentStart = periods.get(0).startDate();
+        Cycle current = cycleRepository.findByUserAndCycleStartDate(user, currentStart).orElse(null);
+        if (current == null) {
+            return false;
+        }
+        CyclePredictionDto prediction = predictionService.predict(UserSnapshot.from(user), periods);
+        if (samePrediction(current, prediction)
+            || cycleRepository.updatePrediction(userId, currentStart, prediction) == 0) {
+            return false;
+        }
+        predictionCache.invalidate(userId);
+        return true;
+    }
+    
+    /**
+     * Waits for the refreshes queued so far; for tests.
+     */
+    void awaitRefreshes() throws Exception {
+        for (ExecutorService refresher : refreshers) {
+            refresher.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        }
+    }
+    
+    private int addLatest(User user, LocalDate start) {
+        List<PeriodDates> latest = periodRepository.findDatesByUser(user, PageRequest.of(0, 2));
+        PeriodDates previous = latest.size() > 1 ? latest.get(1) : null;
+        if (latest.isEmpty() || !latest.get(0).startDate().equals(start)
+            || previous != null && !previous.startDate().isBefore(start)) {
+            return materialize(user);
+        }
+        
+        int changed = 0;
+        if (previous != null) {
+            Cycle closed = cycleRepository.findByUserAndCycleStartDate(user, previous.startDate()).orElse(null);
+            if (closed == null) {
+                return materialize(user);
+            }
+            if (setBounds(closed, previous, start)) {
+                cycleRepository.save(closed);
+                changed++;
+            }
+        }
+        Cycle cycle = cycleRepository.findByUserAndCycleStartDate(user, start).orElse(null);
+        boolean isNew = cycle == null;
+        if (isNew) {
+            cycle = newCycle(user, start);
+        }
+        if (setBounds(cycle, latest.get(0), null) || isNew) {
+            cycleRepository.save(cycle);
+            changed++;
+        }
+        return changed;
+    }
+    
+    private void queueRefresh(Long userId) {
+        if (!pendingRefreshes.add(userId)) {
+            return;
+        }
+        refreshers[(int) Math.floorMod(userId, (long) refreshers.length)].execute(() -> {
+            pendingRefreshes.remove(userId);
+            try {
+                refreshPrediction(userId);
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh the prediction of user {}", userId, e);
+            }
+        });
+    }
+    
+    private static Cycle newCycle(User user, LocalDate start) {
+        Cycle cycle = new Cycle();
+        cycle.setUser(user);
+        cycle.setCycleStartDate(start);
+        return cycle;
+    }
+    
+    /**
+     * Sets the row's end, cycle length and period length for a cycle that runs until
+     * {@code nextStart}, or is still open if that is null.
+     *
+     * @return true if anything changed
+     */
+    private static boolean setBounds(Cycle cycle, PeriodDates period, LocalDate nextStart) {
+        LocalDate start = period.startDate();
+        LocalDate end = nextStart != null ? nextStart.minusDays(1) : null;
+        Integer cycleLength = nextStart != null ? (int) ChronoUnit.DAYS.between(start, nextStart) : null;
+        Integer periodLength = period.endDate() != null
+            ? (int) ChronoUnit.DAYS.between(start, period.endDate()) + 1
+            : null;
+        if (Objects.equals(cycle.getCycleEndDate(), end)
+            && Objects.equals(cycle.getCycleLength(), cycleLength)
+            && Objects.equals(cycle.getPeriodLength(), periodLength)) {
+            return false;
+        }
+        cycle.setCycleEndDate(end);
+        cycle.setCycleLength(cycleLength);
+        cycle.setPeriodLength(periodLength);
+        return true;
+    }
+    
+    private static boolean samePrediction(Cycle cycle, CyclePredictionDto prediction) {
+        return Objects.equals(cycle.getPredictedPeriodStart(), prediction.getPredictedPeriodStart())
+            && Objects.equals(cycle.getPredictedPeriodStartEarliest(), prediction.getPredictedPeriodStartEarliest())
+            && Objects.equals(cycle.getPredictedPeriodStartLatest(), prediction.getPredictedPeriodStartLatest())
+            && Objects.equals(cycle.getPredictedOvulationDate(), prediction.getPredictedOvulationDate())
+            && Objects.equals(cycle.getFertileWindowStart(), prediction.getFertileWindowStart())
+            && Objects.equals(cycle.getFertileWindowEnd(), prediction.getFertileWindowEnd())
+            && Objects.equals(cycle.getIsIrregular(), prediction.getIsIrregular())
+            && Objects.equals(cycle.getPredictionConfidence(), prediction.getPredictionConfidence())
+            && Objects.equals(cycle.getEstimatedCycleLength(), prediction.getEstimatedCycleLength())
+            && Objects.equals(cycle.getExplanation(), prediction.getExplanation())
+            && Objects.equals(cycle.getPredictionSource(), prediction.getSource());
+    }
+}
@@ -0,0 +1,78 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Sufficient statistics of a user's cycle lengths: everything {@link BayesianCyclePredictor}
+ * needs, in five numbers stored on the user row. Appending a period after the latest one is O(1)
+ * ({@link #append}); any other change to the history needs a rebuild ({@link #of}).
+ * <p>
+ * Lengths are filtered like {@link CycleStats}. A period starting on the same day as the latest is
+ * ignored entirely ({@link #append} returns the model unchanged); a gap of 45 days or more (skipped
+ * months) counts the period but adds no cycle to the sums.
+ */
+public record CycleModel(
+    int periodCount,
+    int cycleCount,
+    long lengthSum,
+    long lengthSumOfSquares,
+    LocalDate lastStart
+) {
+    
+    public static final CycleModel EMPTY = new CycleModel(0, 0, 0, 0, null);
+    
+    /**
+     * @param startDays period start dates as epoch days, most recent first
+     */
+    public static CycleModel of(int[] startDays) {
+        CycleModel model = EMPTY;
+        for (int i = startDays.length - 1; i >= 0; i--) {
+            model = model.append(LocalDate.ofEpochDay(startDays[i]));
+        }
+        return model;
+    }
+    
+    /**
+     * The model stored on the user row, or null if it was never built.
+     */
+    public static CycleModel from(User user) {
+        if (user.getModelPeriodCount() == null) {
+            return null;
+        }
+        return new CycleModel(user.getModelPeriodCount(), user.getModelCycleCount(), user.getModelLengthSum(),
+            user.getModelLengthSumOfSquares(), user.getModelLastStart());
+    }
+    
+    public void writeTo(User user) {
+        user.setModelPeriodCount(periodCount);
+        user.setModelCycleCount(cycleCount);
+        user.setModelLengthSum(lengthSum);
+        user.setModelLengthSumOfSquares(lengthSumOfSquares);
+        user.setModelLastStart(lastStart);
+    }
+    
+    /**
+     * True if a period starting on {@code start} can be added with {@link #append}: it is the first
+     * one or does not start before the latest.
+     */
+    public boolean canAppend(LocalDate start) {
+        return lastStart == null || !start.isBefore(lastStart);
+    }
+    
+    public CycleModel append(LocalDate start) {
+        if (lastStart == null) {
+            return new CycleModel(1, 0, 0, 0, start);
+        }
+        long length = start.toEpochDay() - lastStart.toEpochDay();
+        if (length <= 0) {
+            return this; // same day as the latest period: one cycle
+        }
+        if (length >= CycleStats.MAX_CYCLE_LENGTH) {
+            return new CycleModel(periodCount + 1, cycleCount, lengthSum, lengthSumOfSquares, start);
+        }
+        return new CycleModel(periodCount + 1, cycleCount + 1, lengthSum + length,
+            lengthSumOfSquares + length * length, start);
+    }
+}
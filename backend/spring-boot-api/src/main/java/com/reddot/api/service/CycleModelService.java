@@ -0,0 +1,70 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.User;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the {@link CycleModel} on the user row in step with their periods. A new latest period is
+ * folded in without reading the history; a period logged out of order, a changed start date or a
+ * deletion rebuilds the model from all periods. Both write the model columns with a single UPDATE,
+ * never the whole user row: the append only applies if the stored latest start is still the one it
+ * was computed from, and a rebuild locks the row first, so concurrent period writes for one user
+ * cannot lose a cycle.
+ */
+@Service
+public class CycleModelService {
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    /**
+     * Call after a period starting on {@code start} was saved, in the same transaction.
+     */
+    @Transactional
+    public CycleModel recordPeriod(User user, LocalDate start) {
+        CycleModel model = CycleModel.from(user);
+        if (model == null || model.lastStart() == null || !model.canAppend(start)) {
+            return rebuild(user);
+        }
+        CycleModel appended = model.append(start);
+        if (appended == model) {
+            return model; // same day as the latest period
+        }
+        int updated = userRepository.appendToModel(user.getId(), model.lastStart(), start,
+            appended.periodCount() - model.periodCount(), appended.cycleCount() - model.cycleCount(),
+            appended.lengthSum() - model.lengthSum(), appended.lengthSumOfSquares() - model.lengthSumOfSquares());
+        if (updated == 0) {
+            // Another write moved the model since this user was loaded
+            return rebuild(user);
+        }
+        userCache.evict(user);
+        return appended;
+    }
+    
+    /**
+     * Reads the whole history; only for out-of-order, moved or deleted periods and the backfill.
+     */
+    @Transactional
+    public CycleModel rebuild(User user) {
+        // Taken before the history is read, so a concurrent period write commits first or waits
+        userRepository.lockById(user.getId());
+        CycleModel model = CycleModel.of(CycleStats.startDays(periodRepository.findDatesByUser(user, Pageable.unpaged())));
+        userRepository.storeModel(user.getId(), model.periodCount(), model.cycleCount(), model.lengthSum(),
+            model.lengthSumOfSquares(), model.lastStart());
+        userCache.evict(user);
+        return model;
+    }
+}
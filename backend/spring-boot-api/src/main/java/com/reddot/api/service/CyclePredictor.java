@@ -0,0 +1,35 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prediction engine for users with enough history; selected by {@code prediction.engine}.
+ * Implementations may throw, in which case {@link PredictionService} falls back to its rule-based
+ * prediction.
+ */
+public interface CyclePredictor {
+    
+    String getName();
+    
+    CyclePredictionDto predict(CycleHistory history);
+    
+    /**
+     * Predicts for many users at once, keyed by user id. Users the engine could not predict for
+     * are left out rather than failing the whole batch.
+     */
+    default Map<Long, CyclePredictionDto> predictAll(List<CycleHistory> histories) {
+        Map<Long, CyclePredictionDto> predictions = new HashMap<>();
+        for (CycleHistory history : histories) {
+            try {
+                predictions.put(history.userId(), predict(history));
+            } catch (RuntimeException e) {
+                // left to the caller's fallback
+            }
+        }
+        return predictions;
+    }
+}
@@ -0,0 +1,161 @@
+package com.reddot.api.service;
+
+import java.util.List;
+
+/**
+ * Cycle statistics over period start dates given as epoch days, most recent first. One pass over
+ * the dates yields every cycle length, the outlier mask and the mean and variance of the
+ * non-outlier lengths; the irregularity check then re-reads the {@code int[]} of lengths because
+ * it compares against the final average.
+ * <p>
+ * Lengths of 0 days or 45 and more are outliers (duplicate entries, skipped months). This is the
+ * rule-based filter shared by {@link PredictionService} and {@link AnalyticsService};
+ * {@link LocalCyclePredictor} keeps the prediction service's own 21-45 day filter.
+ */
+public final class CycleStats {
+    
+    static final int MAX_CYCLE_LENGTH = 45; // exclusive
+    static final int DEFAULT_CYCLE_LENGTH = 28;
+    static final int IRREGULAR_DEVIATION = 7; // days
+    
+    private final int[] lengths;
+    private final boolean[] outliers;
+    private final int validCount;
+    private final double mean;
+    private final double variance;
+    private final int averageCycleLength;
+    private final boolean irregular;
+    
+    private CycleStats(int[] lengths, boolean[] outliers, int validCount, double mean, double variance,
+                       int averageCycleLength, boolean irregular) {
+        this.lengths = lengths;
+        this.outliers = outliers;
+        this.validCount = validCount;
+        this.mean = mean;
+        this.variance = variance;
+        this.averageCycleLength = averageCycleLength;
+        this.irregular = irregular;
+    }
+    
+    /**
+     * @param startDays period start dates as epoch days, most recent first
+     * @param userAverage the cycle length the user entered, or null
+     */
+    public static CycleStats of(int[] startDays, Integer userAverage) {
+        int cycles = Math.max(0, startDays.length - 1);
+        int[] lengths = new int[cycles];
+        boolean[] outliers = new boolean[cycles];
+        
+        int count = 0;
+        long sum = 0;
+        long sumOfSquares = 0;
+        for (int i = 0; i < cycles; i++) {
+            int length = startDays[i] - startDays[i + 1];
+            lengths[i] = length;
+            if (length > 0 && length < MAX_CYCLE_LENGTH) {
+                count++;
+                sum += length;
+                sumOfSquares += (long) length * length;
+            } else {
+                outliers[i] = true;
+            }
+        }
+        
+        double mean = count > 0 ? (double) sum / count : 0;
+        // Exact integer numerator, so a perfectly regular history has a variance of exactly 0
+        double variance = count > 0 ? (double) (count * sumOfSquares - sum * sum) / ((double) count * count) : 0;
+        
+        int average = userAverage != null ? userAverage : DEFAULT_CYCLE_LENGTH;
+        if (count > 0) {
+            int calculated = (int) (sum / count);
+            // Weight with user's average if available
+            average = userAverage != null ? (calculated + userAverage) / 2 : calculated;
+        }
+        
+        boolean irregular = false;
+        if (startDays.length >= 3) {
+            // Outliers count here: a skipped month is a sign of irregularity
+            int deviation = 0;
+            for (int length : lengths) {
+                deviation += Math.abs(length - average);
+            }
+            irregular = deviation / cycles > IRREGULAR_DEVIATION;
+        }
+        
+        return new CycleStats(lengths, outliers, count, mean, variance, average, irregular);
+    }
+    
+    /**
+     * @param periods ordered by start date, most recent first
+     */
+    public static int[] startDays(List<PeriodDates> periods) {
+        int[] startDays = new int[periods.size()];
+        for (int i = 0; i < startDays.length; i++) {
+            startDays[i] = (int) periods.get(i).startDate().toEpochDay();
+        }
+        return startDays;
+    }
+    
+    /**
+     * Every cycle length, outliers included, most recent first.
+     */
+    public int[] lengths() {
+        return lengths;
+    }
+    
+    public boolean isOutlier(int index) {
+        return outliers[index];
+    }
+    
+    /**
+     * Cycle lengths without outliers, most recent first.
+     */
+    public int[] validLengths() {
+        int[] valid = new int[validCount];
+        int j = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (!outliers[i]) {
+                valid[j++] = lengths[i];
+            }
+        }
+        return valid;
+    }
+    
+    public int validCount() {
+        return validCount;
+    }
+    
+    /**
+     * Mean of the non-outlier lengths; 0 when there are none.
+     */
+    public double mean() {
+        return mean;
+    }
+    
+    /**
+     * Population variance of the non-outlier lengths.
+     */
+    public double variance() {
+        return variance;
+    }
+    
+    public double standardDeviation() {
+        return Math.sqrt(variance);
+    }
+    
+    /**
+     * Whole-day average used for predictions: the mean of the non-outlier lengths averaged with
+     * the user's own value when they gave one, or that value (else 28) without usable history.
+     */
+    public int averageCycleLength() {
+        return averageCycleLength;
+    }
+    
+    /**
+     * True when cycles deviate from {@link #averageCycleLength()} by more than 7 days on average;
+     * needs at least three periods.
+     */
+    public boolean isIrregular() {
+        return irregular;
+    }
+}
@@ -0,0 +1,85 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.DashboardDto;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.MoodRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.SymptomRepository;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.CurrentUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The analytics dashboard in three statements whatever the size of the user's history: the user's
+ * {@link AnalyticsRollupService analytics rollup} (two) and the latest
+ * {@code prediction.history-limit} period start dates. The wellness score comes from the
+ * {@link WellnessScoreCache}, which only queries the last 30 days of wellness logs when the user's
+ * window is not loaded. A user without a rollup yet gets the per-type counts of
+ * {@link SymptomRepository#countByType} and {@link MoodRepository#countByType} instead. Only
+ * dates, types, counts and sums leave the database; the user comes from {@link UserCache}. Results
+ * match the single-section endpoints of {@link AnalyticsService}.
+ */
+@Service
+public class DashboardService {
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Autowired
+    private WellnessScoreCache wellnessScoreCache;
+    
+    @Autowired
+    private SymptomRepository symptomRepository;
+    
+    @Autowired
+    private MoodRepository moodRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CurrentUser currentUser;
+    
+    @Value("${prediction.history-limit:24}")
+    private int historyLimit;
+    
+    public DashboardDto getDashboard() {
+        UserSnapshot user = currentUser.snapshot();
+        return getDashboard(user.id(), user.averageCycleLength(), LocalDate.now());
+    }
+    
+    DashboardDto getDashboard(Long userId, Integer userAverage, LocalDate today) {
+        AnalyticsRollupService.Rollup rollup = analyticsRollupService.read(userId);
+        List<SymptomTypeCount> symptoms;
+        List<MoodTypeCount> moods;
+        if (rollup != null) {
+            symptoms = rollup.symptoms();
+            moods = rollup.moods();
+        } else {
+            User user = userRepository.getReferenceById(userId);
+            symptoms = symptomRepository.countByType(user, null, null);
+            moods = moodRepository.countByType(user, null, null);
+        }
+        return new DashboardDto(
+            cycleConsistency(userId, rollup != null ? rollup.cycleLengths() : null, userAverage),
+            AnalyticsService.symptomFrequency(symptoms),
+            AnalyticsService.moodTrends(moods),
+            wellnessScoreCache.score(userId, today)
+        );
+    }
+    
+    private DashboardDto.CycleConsistency cycleConsistency(Long userId, RunningStats allCycles, Integer userAverage) {
+        List<PeriodDates> periods = periodRepository.findDatesByUser(userRepository.getReferenceById(userId),
+            PageRequest.of(0, historyLimit));
+        return AnalyticsService.cycleConsistency(CycleStats.startDays(periods), allCycles, userAverage);
+    }
+}
@@ -0,0 +1,200 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.EmailOutbox;
+import com.reddot.api.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains {@code email_outbox} in batches: a batch is claimed in one short transaction, sent
+ * through a single SMTP connection with no transaction open, and its outcomes are recorded in
+ * another. Failed messages are retried with exponential backoff and parked as {@code DEAD} once
+ * they run out of attempts. A message's body, which may hold a one-time code, is blanked once it
+ * is {@code SENT} or {@code DEAD}, and finished rows are purged after
+ * {@code app.mail.outbox.retention}.
+ */
+@Service
+public class EmailOutboxDispatcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+    
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.mail.from:}")
+    private String from;
+    
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${app.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+    
+    @Value("${app.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+    
+    @Value("${app.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+    
+    @Value("${app.mail.outbox.lease:5m}")
+    private Duration lease;
+    
+    @Value("${app.mail.outbox.retention:7d}")
+    private Duration retention;
+    
+    @Value("${app.mail.outbox.purge-batch-size:1000}")
+    private int purgeBatchSize;
+    
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:5000}")
+    public void dispatch() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<EmailOutbox> batch = transaction.execute(status -> claim(LocalDateTime.now()));
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        
+        // Outside any transaction so no connection or row lock is held while SMTP answers
+        Map<Integer, Exception> failures = send(batch);
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutbox message = batch.get(i);
+            Exception failure = failures.get(i);
+            if (failure == null) {
+                message.setStatus(EmailOutbox.Status.SENT);
+                message.setSentAt(now);
+                message.setLastError(null);
+                message.setBody("");
+            } else {
+                recordFailure(message, failure, now);
+            }
+        }
+        transaction.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+    }
+    
+    /**
+     * Marks due messages {@code SENDING} with {@code nextAttemptAt} as the end of their lease, so
+     * no other node picks them up while they are sent. A lease that runs out, because the node
+     * died mid-send, makes the message due again.
+     */
+    private List<EmailOutbox> claim(LocalDateTime now) {
+        List<EmailOutbox> batch = outboxRepository.claimDue(now, batchSize);
+        for (EmailOutbox message : batch) {
+            message.setStatus(EmailOutbox.Status.SENDING);
+            message.setNextAttemptAt(now.plus(lease));
+        }
+        outboxRepository.saveAll(batch);
+        return batch;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.mail.outbox.purge-interval:3600000}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxRepository.deleteFinishedBatch(cutoff, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        
+        if (total > 0) {
+            log.debug("Purged {} sent or dead emails", total);
+        }
+    }
+    
+    /**
+     * Sends the batch and returns the failures keyed by position in the batch.
+     */
+    private Map<Integer, Exception> send(List<EmailOutbox> batch) {
+        SimpleMailMessage[] messages = batch.stream().map(this::toMailMessage).toArray(SimpleMailMessage[]::new);
+        Map<Integer, Exception> failures = new HashMap<>();
+        
+        if (mailSender == null) {
+            for (SimpleMailMessage message : messages) {
+                log.warn("Mail sender not configured, dropping email to {}", message.getTo()[0]);
+            }
+            return failures;
+        }
+        
+        try {
+            // JavaMailSender opens one SMTP connection for the whole array
+            mailSender.send(messages);
+        } catch (MailSendException ex) {
+            Map<Object, Exception> failedMessages = ex.getFailedMessages();
+            for (int i = 0; i < messages.length; i++) {
+                Exception failure = failedMessages.get(messages[i]);
+                if (failure != null) {
+                    failures.put(i, failure);
+                } else if (failedMessages.isEmpty()) {
+                    failures.put(i, ex);
+                }
+            }
+        } catch (MailException ex) {
+            for (int i = 0; i < messages.length; i++) {
+                failures.put(i, ex);
+            }
+        }
+        return failures;
+    }
+    
+    private void recordFailure(EmailOutbox message, Exception failure, LocalDateTime now) {
+        int attempts = (message.getAttempts() != null ? message.getAttempts() : 0) + 1;
+        message.setAttempts(attempts);
+        message.setLastError(truncate(failure.getMessage()));
+        
+        if (attempts >= maxAttempts) {
+            message.setStatus(EmailOutbox.Status.DEAD);
+            message.setBody("");
+            log.error("Giving up on email {} to {} after {} attempts", message.getId(), message.getRecipient(), attempts, failure);
+            return;
+        }
+        
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        message.setStatus(EmailOutbox.Status.PENDING);
+        message.setNextAttemptAt(now.plus(backoff));
+        log.warn("Email {} to {} failed (attempt {}), retrying in {}", message.getId(), message.getRecipient(), attempts, backoff);
+    }
+    
+    private SimpleMailMessage toMailMessage(EmailOutbox outbox) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        if (!from.isEmpty()) {
+            message.setFrom(from);
+        }
+        message.setTo(outbox.getRecipient());
+        message.setSubject(outbox.getSubject());
+        message.setText(outbox.getBody());
+        return message;
+    }
+    
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -1,44 +1,49 @@
 package com.reddot.api.service;
 
+import com.reddot.api.model.EmailOutbox;
+import com.reddot.api.repository.EmailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+/**
+ * Queues outgoing mail in the {@code email_outbox} table as part of the caller's transaction;
+ * {@link EmailOutboxDispatcher} delivers it in the background.
+ */
 @Service
 public class EmailService {
     
-    @Autowired(required = false)
-    private JavaMailSender mailSender;
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
     
     @Value("${app.frontend-url:http://localhost:3000}")
     private String frontendUrl;
     
+    @Transactional
     public void sendVerificationEmail(String email, String token) {
-        if (mailSender == null) {
-            System.out.println("Email service not configured. Verification link: " + frontendUrl + "/verify-email?token=" + token);
-            return;
-        }
-        
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("Verify your RedDot account");
-        message.setText("Please click the link to verify your email: " + frontendUrl + "/verify-email?token=" + token);
-        mailSender.send(message);
+        enqueue(email,
+            "Verify your RedDot account",
+            "Please click the link to verify your email: " + frontendUrl + "/verify-email?token=" + token);
     }
     
+    @Transactional
     public void sendPasswordResetOtp(String email, String otp) {
-        if (mailSender == null) {
-            System.out.println("Email service not configured. Password reset OTP for " + email + ": " + otp);
-            return;
-        }
-        
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("RedDot - Password Reset OTP");
-        message.setText("Your password reset OTP is: " + otp + "\n\nThis OTP will expire in 15 minutes.");
-        mailSender.send(message);
+        enqueue(email,
+            "RedDot - Password Reset OTP",
+            "Your password reset OTP is: " + otp + "\n\nThis OTP will expire in 15 minutes.");
+    }
+    
+    private void enqueue(String recipient, String subject, String body) {
+        EmailOutbox message = new EmailOutbox();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setStatus(EmailOutbox.Status.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(LocalDateTime.now());
+        outboxRepository.save(message);
     }
 }
-
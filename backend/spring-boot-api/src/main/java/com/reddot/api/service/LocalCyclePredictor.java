@@ -0,0 +1,217 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * In-process port of {@code backend/prediction-service/main.py} ({@code calculate_cycle_lengths},
+ * {@code detect_patterns}, {@code predict_next_period}, {@code calculate_ovulation} and
+ * {@code generate_explanation}). It works on the epoch-day array directly and reproduces the
+ * service's floating point results exactly, including numpy's pairwise summation in
+ * {@code np.std}; {@code LocalCyclePredictorParityTest} checks this against fixtures generated
+ * from {@code main.py}.
+ */
+@Component
+public class LocalCyclePredictor implements CyclePredictor {
+    
+    private static final int MIN_VALID_CYCLE = 21;
+    private static final int MAX_VALID_CYCLE = 45;
+    
+    private static final int STABLE = 0;
+    private static final int INCREASING = 1;
+    private static final int DECREASING = -1;
+    
+    @Override
+    public String getName() {
+        return "local";
+    }
+    
+    @Override
+    public CyclePredictionDto predict(CycleHistory history) {
+        int[] starts = history.startDays();
+        int periodCount = starts.length;
+        if (periodCount == 0) {
+            // The service fails on an empty history as well
+            throw new IllegalArgumentException("At least one period is required");
+        }
+        
+        // calculate_cycle_lengths
+        int[] cycles = new int[periodCount - 1];
+        int cycleCount = 0;
+        for (int i = 0; i < periodCount - 1; i++) {
+            int length = starts[i] - starts[i + 1];
+            if (length >= MIN_VALID_CYCLE && length <= MAX_VALID_CYCLE) {
+                cycles[cycleCount++] = length;
+            }
+        }
+        
+        // detect_patterns
+        double average;
+        double stdDev = 0;
+        boolean regular = true;
+        int trend = STABLE;
+        if (cycleCount == 0) {
+            Integer userAverage = history.averageCycleLength();
+            average = userAverage == null || userAverage == 0 ? 28 : userAverage;
+        } else if (cycleCount < 2) {
+            average = 28;
+        } else {
+            average = mean(cycles, 0, cycleCount);
+            stdDev = Math.sqrt(sumOfSquaredDeviations(cycles, 0, cycleCount, average) / cycleCount);
+            regular = stdDev < 7;
+            trend = trend(cycles, cycleCount);
+        }
+        
+        // predict_next_period
+        double predictedCycle = average;
+        if (trend == INCREASING) {
+            predictedCycle = average + 1;
+        } else if (trend == DECREASING) {
+            predictedCycle = average - 1;
+        }
+        
+        if (periodCount >= 3) {
+            // Cycle lengths within the three most recent periods
+            int recentSum = 0;
+            int recentCount = 0;
+            for (int i = 0; i < 2; i++) {
+                int length = starts[i] - starts[i + 1];
+                if (length >= MIN_VALID_CYCLE && length <= MAX_VALID_CYCLE) {
+                    recentSum += length;
+                    recentCount++;
+                }
+            }
+            if (recentCount > 0) {
+                predictedCycle = 0.7 * ((double) recentSum / recentCount) + 0.3 * average;
+            }
+        }
+        
+        int cycleLength = (int) predictedCycle;
+        LocalDate predictedPeriodStart = LocalDate.ofEpochDay(starts[0]).plusDays(cycleLength);
+        
+        double regularityBonus = regular ? 0.2 : 0.0;
+        double confidence = Math.max(0.3, Math.min(0.95, 0.5 + (periodCount * 0.05) + regularityBonus - (stdDev * 0.01)));
+        
+        // calculate_ovulation
+        int daysBeforePeriod = cycleLength <= 28 ? 14 : cycleLength <= 32 ? 15 : 16;
+        LocalDate ovulationDate = predictedPeriodStart.minusDays(daysBeforePeriod);
+        
+        CyclePredictionDto dto = new CyclePredictionDto();
+        dto.setPredictedPeriodStart(predictedPeriodStart);
+        dto.setPredictedOvulationDate(ovulationDate);
+        dto.setFertileWindowStart(ovulationDate.minusDays(5));
+        dto.setFertileWindowEnd(ovulationDate.plusDays(1));
+        dto.setPredictionConfidence(confidence);
+        dto.setExplanation(generateExplanation(periodCount, regular, average, trend, confidence));
+        dto.setIsIrregular(!regular);
+        dto.setEstimatedCycleLength(cycleLength);
+        return dto;
+    }
+    
+    private static int trend(int[] cycles, int count) {
+        if (count < 4) {
+            return STABLE;
+        }
+        double recent = mean(cycles, 0, 3);
+        double older = mean(cycles, 3, Math.min(count, 6) - 3);
+        if (recent > older + 2) {
+            return INCREASING;
+        }
+        if (recent < older - 2) {
+            return DECREASING;
+        }
+        return STABLE;
+    }
+    
+    private static String generateExplanation(int periodCount, boolean regular, double average, int trend, double confidence) {
+        StringBuilder explanation = new StringBuilder(200);
+        
+        if (periodCount < 3) {
+            explanation.append("We're still learning your cycle pattern.");
+        } else {
+            explanation.append("Based on your ").append(periodCount).append(" logged periods,");
+        }
+        
+        if (regular) {
+            explanation.append(" your cycles are quite regular.");
+        } else {
+            explanation.append(" your cycles show some variation, which is normal.");
+        }
+        
+        explanation.append(" Your average cycle length is ").append((int) average).append(" days.");
+        
+        if (trend == INCREASING) {
+            explanation.append(" Your cycles have been getting slightly longer recently.");
+        } else if (trend == DECREASING) {
+            explanation.append(" Your cycles have been getting slightly shorter recently.");
+        }
+        
+        explanation.append(" Prediction confidence: ").append((int) (confidence * 100)).append("%.");
+        
+        if (confidence < 0.7) {
+            explanation.append(" Keep logging your periods to improve accuracy!");
+        }
+        
+        return explanation.toString();
+    }
+    
+    // np.mean over integers: the sum is exact, so this is the same correctly rounded division
+    private static double mean(int[] values, int offset, int count) {
+        long sum = 0;
+        for (int i = offset; i < offset + count; i++) {
+            sum += values[i];
+        }
+        return (double) sum / count;
+    }
+    
+    /**
+     * Sum of {@code (x - mean)^2} in the same order as numpy's pairwise summation, which is what
+     * {@code np.std} uses, so the result matches to the last bit.
+     */
+    static double sumOfSquaredDeviations(int[] values, int offset, int count, double mean) {
+        if (count < 8) {
+            double sum = 0.;
+            for (int i = offset; i < offset + count; i++) {
+                sum += square(values[i] - mean);
+            }
+            return sum;
+        }
+        if (count <= 128) {
+            double r0 = square(values[offset] - mean);
+            double r1 = square(values[offset + 1] - mean);
+            double r2 = square(values[offset + 2] - mean);
+            double r3 = square(values[offset + 3] - mean);
+            double r4 = square(values[offset + 4] - mean);
+            double r5 = square(values[offset + 5] - mean);
+            double r6 = square(values[offset + 6] - mean);
+            double r7 = square(values[offset + 7] - mean);
+            int i = 8;
+            for (; i < count - (count % 8); i += 8) {
+                int base = offset + i;
+                r0 += square(values[base] - mean);
+                r1 += square(values[base + 1] - mean);
+                r2 += square(values[base + 2] - mean);
+                r3 += square(values[base + 3] - mean);
+                r4 += square(values[base + 4] - mean);
+                r5 += square(values[base + 5] - mean);
+                r6 += square(values[base + 6] - mean);
+                r7 += square(values[base + 7] - mean);
+            }
+            double sum = ((r0 + r1) + (r2 + r3)) + ((r4 + r5) + (r6 + r7));
+            for (; i < count; i++) {
+                sum += square(values[offset + i] - mean);
+            }
+            return sum;
+        }
+        int half = count / 2;
+        half -= half % 8;
+        return sumOfSquaredDeviations(values, offset, half, mean)
+            + sumOfSquaredDeviations(values, offset + half, count - half, mean);
+    }
+    
+    private static double square(double value) {
+        return value * value;
+    }
+}
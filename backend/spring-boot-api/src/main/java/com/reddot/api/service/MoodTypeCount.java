@@ -0,0 +1,13 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.Mood;
+
+/**
+ * How often the user logged one mood type, grouped in the database instead of loading every
+ * {@link Mood} with its notes.
+ *
+ * @param averageIntensity mean of the entries that have an intensity, null if none has
+ * @param rated how many entries have an intensity, to weight averages across types
+ */
+public record MoodTypeCount(Mood.MoodType moodType, Long count, Double averageIntensity, Long rated) {
+}
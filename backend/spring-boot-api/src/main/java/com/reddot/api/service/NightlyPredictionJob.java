@@ -0,0 +1,215 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the current-cycle prediction of every active user once a night. Users are read in
+ * id-ordered chunks; for each chunk the recent periods come from one query, the engine is called once
+ * ({@code POST /predict/batch} with the remote engine) and the results are written to
+ * {@code cycles} in one JDBC batch. Chunks run on {@code app.nightly-predictions.parallelism}
+ * threads.
+ * <p>
+ * Only existing current-cycle rows are updated; rows are created by {@link CycleMaterializer} on
+ * period writes and by {@link CycleBackfillJob}. Users without a row are counted as skipped.
+ */
+@Service
+public class NightlyPredictionJob extends BackgroundJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(NightlyPredictionJob.class);
+    
+    private static final String UPDATE_CURRENT_CYCLE =
+        "UPDATE cycles SET predicted_period_start = ?, predicted_period_start_earliest = ?, " +
+        "predicted_period_start_latest = ?, predicted_ovulation_date = ?, fertile_window_start = ?, " +
+        "fertile_window_end = ?, is_irregular = ?, prediction_confidence = ?, estimated_cycle_length = ?, " +
+        "explanation = ?, prediction_source = ?, updated_at = ? WHERE user_id = ? AND cycle_start_date = ?";
+    
+    // The last :limit periods of each user in the chunk
+    private static final String SELECT_RECENT_PERIODS =
+        "SELECT user_id, start_date, end_date FROM (" +
+        "SELECT user_id, start_date, end_date, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY start_date DESC) AS rn " +
+        "FROM periods WHERE user_id IN (:userIds)) recent " +
+        "WHERE rn <= :limit ORDER BY user_id, start_date DESC";
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PredictionService predictionService;
+    
+    @Autowired
+    private PredictionCache predictionCache;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.nightly-predictions.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.nightly-predictions.chunk-size:200}")
+    private int chunkSize;
+    
+    @Value("${app.nightly-predictions.parallelism:4}")
+    private int parallelism;
+    
+    private final AtomicLong processedUsers = counter("processedUsers");
+    private final AtomicLong updatedUsers = counter("updatedUsers");
+    private final AtomicLong skippedUsers = counter("skippedUsers");
+    private final AtomicLong failedUsers = counter("failedUsers");
+    private volatile double lastUsersPerSecond;
+    
+    public NightlyPredictionJob() {
+        super("Nightly predictions");
+    }
+    
+    @PostConstruct
+    public void init() {
+        Gauge.builder("prediction.batch.throughput", this, job -> job.lastUsersPerSecond)
+                .description("Users per second in the last completed nightly prediction run")
+                .baseUnit("users/s")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(cron = "${app.nightly-predictions.cron:0 0 2 * * *}")
+    public void runNightly() {
+        if (enabled) {
+            start();
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = super.getStatus();
+        status.put("usersPerSecond", usersPerSecond());
+        return status;
+    }
+    
+    @Override
+    protected void execute() throws InterruptedException {
+        forEachChunk(userRepository::findActiveIdsAfter, chunkSize, parallelism, ids -> {
+            try {
+                processChunk(ids);
+            } catch (RuntimeException e) {
+                failedUsers.addAndGet(ids.size());
+                log.warn("Nightly predictions failed for users {}..{}", ids.get(0), ids.get(ids.size() - 1), e);
+            }
+        });
+    }
+    
+    @Override
+    protected void finished() {
+        lastUsersPerSecond = usersPerSecond();
+        log.info("Nightly predictions finished: {} users in {}s ({} users/s), {} updated, {} skipped, {} failed",
+            processedUsers.get(), Math.round(elapsedSeconds()), String.format("%.1f", lastUsersPerSecond),
+            updatedUsers.get(), skippedUsers.get(), failedUsers.get());
+    }
+    
+    private void processChunk(List<Long> ids) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        List<UserSnapshot> users = new ArrayList<>(ids.size());
+        Map<Long, List<PeriodDates>> periodsByUser = new HashMap<>();
+        readOnly.executeWithoutResult(status -> {
+            for (User user : userRepository.findWithHealthConditionsByIdIn(ids)) {
+                users.add(UserSnapshot.from(user));
+            }
+            namedParameterJdbcTemplate.query(SELECT_RECENT_PERIODS,
+                Map.of("userIds", ids, "limit", predictionService.getHistoryLimit()),
+                (RowCallbackHandler) rs -> periodsByUser
+                        .computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>())
+                        .add(new PeriodDates(rs.getObject("start_date", LocalDate.class),
+                            rs.getObject("end_date", LocalDate.class))));
+        });
+        
+        // Outside the transaction so no connection is held while the engine runs
+        Map<Long, CyclePredictionDto> predictions = predictionService.predictAll(users, periodsByUser);
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> userIds = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (UserSnapshot user : users) {
+            List<PeriodDates> periods = periodsByUser.get(user.id());
+            if (periods == null) {
+                continue; // no periods, no cycle row to refresh
+            }
+            CyclePredictionDto dto = predictions.get(user.id());
+            userIds.add(user.id());
+            rows.add(new Object[] {
+                toDate(dto.getPredictedPeriodStart()),
+                toDate(dto.getPredictedPeriodStartEarliest()),
+                toDate(dto.getPredictedPeriodStartLatest()),
+                toDate(dto.getPredictedOvulationDate()),
+                toDate(dto.getFertileWindowStart()),
+                toDate(dto.getFertileWindowEnd()),
+                dto.getIsIrregular(),
+                dto.getPredictionConfidence(),
+                dto.getEstimatedCycleLength(),
+                dto.getExplanation(),
+                dto.getSource(),
+                now,
+                user.id(),
+                Date.valueOf(periods.get(0).startDate())
+            });
+        }
+        
+        int updated = 0;
+        if (!rows.isEmpty()) {
+            int[] counts = new TransactionTemplate(transactionManager)
+                    .execute(status -> jdbcTemplate.batchUpdate(UPDATE_CURRENT_CYCLE, rows));
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    predictionCache.invalidate(userIds.get(i));
+                    updated++;
+                }
+            }
+        }
+        
+        processedUsers.addAndGet(users.size());
+        updatedUsers.addAndGet(updated);
+        skippedUsers.addAndGet(users.size() - updated);
+    }
+    
+    private double usersPerSecond() {
+        double seconds = elapsedSeconds();
+        return seconds > 0 ? processedUsers.get() / seconds : 0;
+    }
+    
+    private static Date toDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
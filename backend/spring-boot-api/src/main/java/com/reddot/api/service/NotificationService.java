@@ -4,10 +4,9 @@ import com.reddot.api.model.Notification;
 import com.reddot.api.model.User;
 import com.reddot.api.repository.NotificationRepository;
 import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,26 +22,22 @@ public class NotificationService {
     @Autowired
     private UserRepository userRepository;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
+    @Autowired
+    private CurrentUser currentUser;
     
     public List<Notification> getUserNotifications() {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         return notificationRepository.findByUserOrderByCreatedAtDesc(user);
     }
     
     public List<Notification> getUnreadNotifications() {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         return notificationRepository.findByUserAndReadFalseOrderByCreatedAtDesc(user);
     }
     
     @Transactional
     public Notification markAsRead(Long notificationId) {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
         
@@ -56,7 +51,7 @@ public class NotificationService {
     
     @Transactional
     public void markAllAsRead() {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         List<Notification> notifications = notificationRepository.findByUserAndReadFalseOrderByCreatedAtDesc(user);
         notifications.forEach(n -> n.setRead(true));
         notificationRepository.saveAll(notifications);
@@ -64,7 +59,7 @@ public class NotificationService {
     
     @Transactional
     public Notification createNotification(Notification notification) {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         notification.setUser(user);
         if (notification.getScheduledTime() == null) {
             notification.setScheduledTime(LocalDateTime.now());
@@ -0,0 +1,130 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.OtpToken;
+import com.reddot.api.repository.OtpTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * One-time codes, stored as an HMAC keyed with a server secret so a leaked table can't be
+ * brute-forced offline. There is a single live code per (email, type); every verification counts
+ * against it before the code is compared, and the code is locked once {@code app.otp.max-attempts}
+ * is reached.
+ */
+@Service
+public class OtpService {
+    
+    private static final Logger log = LoggerFactory.getLogger(OtpService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    public enum Result {
+        VALID, INVALID, EXPIRED, TOO_MANY_ATTEMPTS
+    }
+    
+    @Autowired
+    private OtpTokenRepository otpTokenRepository;
+    
+    @Value("${app.otp.secret:${jwt.secret}}")
+    private String secret;
+    
+    @Value("${app.otp.ttl:15m}")
+    private Duration ttl;
+    
+    @Value("${app.otp.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${app.otp.purge-batch-size:1000}")
+    private int purgeBatchSize;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    private SecretKeySpec key;
+    
+    @PostConstruct
+    public void init() {
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+    
+    /**
+     * Issues a fresh code, replacing any earlier one for the same email and type.
+     */
+    @Transactional
+    public String issue(String email, OtpToken.OtpType type) {
+        String otp = String.format("%06d", random.nextInt(1_000_000));
+        LocalDateTime now = LocalDateTime.now();
+        otpTokenRepository.upsert(email, type.name(), hash(email, type, otp), now.plus(ttl), now);
+        return otp;
+    }
+    
+    /**
+     * Checks the code and, if it matches, consumes it. The attempt is counted with a conditional
+     * UPDATE before the hash is compared, so concurrent guesses can't get past the cap, and is
+     * committed even though the caller will usually turn a non-{@code VALID} result into an error.
+     */
+    @Transactional
+    public Result verify(String email, OtpToken.OtpType type, String otp) {
+        Optional<OtpToken> found = otpTokenRepository.findByEmailAndType(email, type);
+        if (found.isEmpty() || Boolean.TRUE.equals(found.get().getUsed())) {
+            return Result.INVALID;
+        }
+        
+        OtpToken token = found.get();
+        if (token.getExpiryTime().isBefore(LocalDateTime.now())) {
+            return Result.EXPIRED;
+        }
+        if (otpTokenRepository.claimAttempt(email, type, maxAttempts) == 0) {
+            return Result.TOO_MANY_ATTEMPTS;
+        }
+        
+        byte[] expected = token.getOtpHash().getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = hash(email, type, otp == null ? "" : otp).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Result.INVALID;
+        }
+        
+        return otpTokenRepository.markUsed(token.getId()) == 1 ? Result.VALID : Result.INVALID;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.otp.purge-interval:600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = otpTokenRepository.deleteExpiredBatch(now, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        
+        if (total > 0) {
+            log.debug("Purged {} expired or used OTP tokens", total);
+        }
+    }
+    
+    private String hash(String email, OtpToken.OtpType type, String otp) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal((email + '\0' + type.name() + '\0' + otp).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
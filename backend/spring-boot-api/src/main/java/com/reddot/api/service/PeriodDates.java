@@ -0,0 +1,10 @@
+package com.reddot.api.service;
+
+import java.time.LocalDate;
+
+/**
+ * The two columns of a period that predictions and cycle statistics read, without loading the
+ * entity and its notes.
+ */
+public record PeriodDates(LocalDate startDate, LocalDate endDate) {
+}
@@ -5,9 +5,8 @@ import com.reddot.api.model.Period;
 import com.reddot.api.model.User;
 import com.reddot.api.repository.PeriodRepository;
 import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,16 +23,24 @@ public class PeriodService {
     @Autowired
     private UserRepository userRepository;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
+    @Autowired
+    private CurrentUser currentUser;
+    
+    @Autowired
+    private PredictionCache predictionCache;
+    
+    @Autowired
+    private CycleMaterializer cycleMaterializer;
+    
+    @Autowired
+    private CycleModelService cycleModelService;
+    
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
     
     @Transactional
     public PeriodDto createPeriod(PeriodDto periodDto) {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         
         Period period = new Period();
         period.setUser(user);
@@ -44,19 +51,19 @@ public class PeriodService {
         period.setNotes(periodDto.getNotes());
         
         period = periodRepository.save(period);
+        predictionCache.invalidate(user.getId());
         
-        // Update user's last period start
-        if (user.getLastPeriodStart() == null || 
-            period.getStartDate().isAfter(user.getLastPeriodStart())) {
-            user.setLastPeriodStart(period.getStartDate());
-            userRepository.save(user);
-        }
+        // Only moves forward, and touches no other user column
+        userRepository.advanceLastPeriodStart(user.getId(), period.getStartDate());
+        cycleModelService.recordPeriod(user, period.getStartDate());
+        analyticsRollupService.periodAdded(user.getId(), period.getId(), period.getStartDate());
+        cycleMaterializer.periodAdded(user, period.getStartDate());
         
         return PeriodDto.fromEntity(period);
     }
     
     public List<PeriodDto> getUserPeriods() {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         return periodRepository.findByUserOrderByStartDateDesc(user)
                 .stream()
                 .map(PeriodDto::fromEntity)
@@ -64,7 +71,7 @@ public class PeriodService {
     }
     
     public List<PeriodDto> getPeriodsByDateRange(LocalDate startDate, LocalDate endDate) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         return periodRepository.findByUserAndDateRange(user, startDate, endDate)
                 .stream()
                 .map(PeriodDto::fromEntity)
@@ -72,11 +79,11 @@ public class PeriodService {
     }
     
     public PeriodDto getPeriodById(Long id) {
-        User user = getCurrentUser();
+        Long userId = currentUser.getId();
         Period period = periodRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Period not found"));
         
-        if (!period.getUser().getId().equals(user.getId())) {
+        if (!period.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized access");
         }
         
@@ -85,14 +92,16 @@ public class PeriodService {
     
     @Transactional
     public PeriodDto updatePeriod(Long id, PeriodDto periodDto) {
-        User user = getCurrentUser();
+        Long userId = currentUser.getId();
         Period period = periodRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Period not found"));
         
-        if (!period.getUser().getId().equals(user.getId())) {
+        if (!period.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized access");
         }
         
+        LocalDate previousStart = period.getStartDate();
+        boolean startChanged = !previousStart.equals(periodDto.getStartDate());
         period.setStartDate(periodDto.getStartDate());
         period.setEndDate(periodDto.getEndDate());
         period.setAverageFlowIntensity(periodDto.getAverageFlowIntensity());
@@ -100,20 +109,32 @@ public class PeriodService {
         period.setNotes(periodDto.getNotes());
         
         period = periodRepository.save(period);
+        if (startChanged) {
+            cycleModelService.rebuild(period.getUser());
+            analyticsRollupService.periodMoved(userId, id, previousStart, period.getStartDate());
+            cycleMaterializer.periodsChanged(period.getUser());
+        } else {
+            cycleMaterializer.periodEdited(period.getUser(), new PeriodDates(period.getStartDate(), period.getEndDate()));
+        }
+        predictionCache.invalidate(userId);
         return PeriodDto.fromEntity(period);
     }
     
     @Transactional
     public void deletePeriod(Long id) {
-        User user = getCurrentUser();
+        Long userId = currentUser.getId();
         Period period = periodRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Period not found"));
         
-        if (!period.getUser().getId().equals(user.getId())) {
+        if (!period.getUser().getId().equals(userId)) {
             throw new RuntimeException("Unauthorized access");
         }
         
         periodRepository.delete(period);
+        cycleModelService.rebuild(period.getUser());
+        analyticsRollupService.periodRemoved(userId, id, period.getStartDate());
+        cycleMaterializer.periodsChanged(period.getUser());
+        predictionCache.invalidate(userId);
     }
 }
 
@@ -0,0 +1,299 @@
+package com.reddot.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cycle-length priors for users without history of their own, by age band, health condition and
+ * activity level, learned from users who enabled data sharing.
+ * <p>
+ * A refresh scans those users in id-ordered chunks and adds up the sums of their stored
+ * {@link CycleModel}, so no periods are read. The result is a fixed table of
+ * {@code 8 age bands x 4 conditions x 4 activity levels} cells in flat arrays, swapped in whole;
+ * {@link #priorFor} is an index computation. A cell backed by fewer than
+ * {@code app.population-priors.min-users} users borrows from age band and condition, then
+ * condition alone, then everyone. Each node builds its own table on startup and on
+ * {@code app.population-priors.cron}.
+ */
+@Service
+public class PopulationPriors extends BackgroundJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(PopulationPriors.class);
+    
+    static final int AGE_BANDS = 8; // under 20, 20-24, 25-29, 30-34, 35-39, 40-44, 45 and over, unknown
+    static final int CONDITIONS = 4; // none, PCOS, thyroid, other
+    static final int ACTIVITY_LEVELS = 4; // sedentary, moderate, active, unknown
+    static final int CELLS = AGE_BANDS * CONDITIONS * ACTIVITY_LEVELS;
+    
+    private static final String SELECT_SHARING_USERS =
+        "SELECT id, age, date_of_birth, activity_level, model_cycle_count, model_length_sum, model_length_sum_of_squares " +
+        "FROM users WHERE data_sharing_enabled = TRUE AND model_cycle_count > 0 AND id > :after ORDER BY id LIMIT :limit";
+    
+    private static final String SELECT_CONDITIONS =
+        "SELECT user_id, condition FROM user_health_conditions WHERE user_id IN (:userIds)";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Value("${app.population-priors.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.population-priors.min-users:30}")
+    private int minUsers;
+    
+    private volatile Table table = Table.EMPTY;
+    
+    public PopulationPriors() {
+        super("Population priors refresh");
+    }
+    
+    /**
+     * Per cell: the prior mean, how many cycles it is worth and the expected variance of one
+     * user's cycles. {@code users[cell] == 0} means no data, not even after backing off.
+     */
+    record Table(double[] means, double[] strengths, double[] variances, int[] users, int totalUsers,
+                 LocalDateTime builtAt) {
+        
+        static final Table EMPTY = new Table(new double[CELLS], new double[CELLS], new double[CELLS], new int[CELLS], 0, null);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        start();
+    }
+    
+    @Scheduled(cron = "${app.population-priors.cron:0 30 4 * * *}")
+    public void refreshNightly() {
+        start();
+    }
+    
+    @Override
+    protected void execute() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Population priors refresh failed, keeping the previous table", e);
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getStatus() {
+        Table current = table;
+        int cellsWithData = 0;
+        for (int users : current.users()) {
+            cellsWithData += users >= minUsers ? 1 : 0;
+        }
+        Map<String, Object> status = super.getStatus();
+        status.put("builtAt", current.builtAt());
+        status.put("users", current.totalUsers());
+        status.put("cells", CELLS);
+        status.put("cellsWithOwnData", cellsWithData);
+        return status;
+    }
+    
+    /**
+     * The prior for a user's cycle length. A length the user entered replaces the population mean;
+     * without a table yet this is {@link CycleLengthPosterior.Prior#around}.
+     */
+    public CycleLengthPosterior.Prior priorFor(UserSnapshot user) {
+        Table current = table;
+        int cell = cell(ageBand(user.age(), user.dateOfBirth()), condition(user.healthConditions()),
+            activityLevel(user.activityLevel()));
+        if (current.users()[cell] == 0) {
+            return CycleLengthPosterior.Prior.around(user.averageCycleLength());
+        }
+        double mean = user.averageCycleLength() != null ? user.averageCycleLength() : current.means()[cell];
+        double shape = CycleLengthPosterior.Prior.DEFAULT_SHAPE;
+        return new CycleLengthPosterior.Prior(mean, current.strengths()[cell], shape,
+            current.variances()[cell] * (shape - 1));
+    }
+    
+    /**
+     * Rebuilds the table in the calling thread.
+     */
+    void refresh() {
+        long startedAt = System.nanoTime();
+        Accumulator totals = new Accumulator(CELLS);
+        long after = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>(chunkSize);
+            List<long[]> rows = new ArrayList<>(chunkSize); // id, age band, activity level, cycles, sum, sum of squares
+            namedParameterJdbcTemplate.query(SELECT_SHARING_USERS, Map.of("after", after, "limit", chunkSize),
+                (RowCallbackHandler) rs -> {
+                    Date dateOfBirth = rs.getDate("date_of_birth");
+                    int ageBand = ageBand((Integer) rs.getObject("age"), dateOfBirth != null ? dateOfBirth.toLocalDate() : null);
+                    ids.add(rs.getLong("id"));
+                    rows.add(new long[] {rs.getLong("id"), ageBand, activityLevel(rs.getString("activity_level")),
+                        rs.getLong("model_cycle_count"), rs.getLong("model_length_sum"),
+                        rs.getLong("model_length_sum_of_squares")});
+                });
+            if (ids.isEmpty()) {
+                break;
+            }
+            after = ids.get(ids.size() - 1);
+            
+            Map<Long, Set<String>> conditions = new HashMap<>();
+            namedParameterJdbcTemplate.query(SELECT_CONDITIONS, Map.of("userIds", ids),
+                (RowCallbackHandler) rs -> conditions
+                        .computeIfAbsent(rs.getLong("user_id"), id -> new HashSet<>())
+                        .add(rs.getString("condition")));
+            
+            for (long[] row : rows) {
+                int condition = condition(conditions.getOrDefault(row[0], Set.of()));
+                totals.add(cell((int) row[1], condition, (int) row[2]), row[3], row[4], row[5]);
+            }
+        }
+        
+        table = build(totals, minUsers);
+        log.info("Population priors rebuilt from {} users in {}ms", table.totalUsers(),
+            (System.nanoTime() - startedAt) / 1_000_000);
+    }
+    
+    static Table build(Accumulator cells, int minUsers) {
+        // Coarser groupings to back off to: age band and condition, condition, everyone
+        Accumulator ageAndCondition = new Accumulator(AGE_BANDS * CONDITIONS);
+        Accumulator condition = new Accumulator(CONDITIONS);
+        Accumulator everyone = new Accumulator(1);
+        for (int cell = 0; cell < CELLS; cell++) {
+            int group = cell / ACTIVITY_LEVELS;
+            ageAndCondition.addAll(group, cells, cell);
+            condition.addAll(group % CONDITIONS, cells, cell);
+            everyone.addAll(0, cells, cell);
+        }
+        
+        double[] means = new double[CELLS];
+        double[] strengths = new double[CELLS];
+        double[] variances = new double[CELLS];
+        int[] users = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            int group = cell / ACTIVITY_LEVELS;
+            Accumulator source = cells;
+            int index = cell;
+            if (cells.users[cell] < minUsers) {
+                source = ageAndCondition;
+                index = group;
+                if (ageAndCondition.users[group] < minUsers) {
+                    source = condition;
+                    index = group % CONDITIONS;
+                    if (condition.users[index] < minUsers) {
+                        source = everyone;
+                        index = 0;
+                    }
+                }
+            }
+            if (source.cycles[index] == 0) {
+                continue;
+            }
+            double cycles = source.cycles[index];
+            double mean = source.sums[index] / cycles;
+            double total = Math.max(0, source.sumsOfSquares[index] / cycles - mean * mean);
+            // Split the spread into variation within a user's cycles and between users' means
+            double within = Math.max(1, source.withinSquares[index] / Math.max(1, cycles - source.users[index]));
+            double between = Math.max(0.25, total - within);
+            means[cell] = mean;
+            variances[cell] = within;
+            strengths[cell] = Math.min(10, within / between);
+            users[cell] = source.users[index];
+        }
+        return new Table(means, strengths, variances, users, everyone.users[0], LocalDateTime.now());
+    }
+    
+    static int cell(int ageBand, int condition, int activityLevel) {
+        return (ageBand * CONDITIONS + condition) * ACTIVITY_LEVELS + activityLevel;
+    }
+    
+    static int ageBand(Integer age, LocalDate dateOfBirth) {
+        if (age == null && dateOfBirth != null) {
+            age = Period.between(dateOfBirth, LocalDate.now()).getYears();
+        }
+        if (age == null || age <= 0) {
+            return AGE_BANDS - 1;
+        }
+        return Math.min(AGE_BANDS - 2, Math.max(0, (age - 15) / 5));
+    }
+    
+    static int condition(Set<String> healthConditions) {
+        int condition = 0;
+        for (String name : healthConditions) {
+            String normalized = name == null ? "" : name.toUpperCase(Locale.ROOT);
+            if (normalized.contains("PCOS") || normalized.contains("POLYCYSTIC")) {
+                return 1; // dominates the others
+            }
+            if (normalized.contains("THYROID")) {
+                condition = 2;
+            } else if (!normalized.isBlank() && condition == 0) {
+                condition = 3;
+            }
+        }
+        return condition;
+    }
+    
+    static int activityLevel(String activityLevel) {
+        if (activityLevel == null) {
+            return 3;
+        }
+        return switch (activityLevel.toUpperCase(Locale.ROOT)) {
+            case "SEDENTARY" -> 0;
+            case "MODERATE" -> 1;
+            case "ACTIVE" -> 2;
+            default -> 3;
+        };
+    }
+    
+    /**
+     * Per group: users, cycles, sum and sum of squares of lengths, and the sum of squared deviations
+     * from each user's own mean (which has {@code cycles - users} degrees of freedom).
+     */
+    static final class Accumulator {
+        
+        final int[] users;
+        final double[] cycles;
+        final double[] sums;
+        final double[] sumsOfSquares;
+        final double[] withinSquares;
+        
+        Accumulator(int groups) {
+            users = new int[groups];
+            cycles = new double[groups];
+            sums = new double[groups];
+            sumsOfSquares = new double[groups];
+            withinSquares = new double[groups];
+        }
+        
+        void add(int group, long cycleCount, long lengthSum, long lengthSumOfSquares) {
+            users[group]++;
+            cycles[group] += cycleCount;
+            sums[group] += lengthSum;
+            sumsOfSquares[group] += lengthSumOfSquares;
+            withinSquares[group] += (double) (cycleCount * lengthSumOfSquares - lengthSum * lengthSum) / cycleCount;
+        }
+        
+        void addAll(int group, Accumulator other, int otherGroup) {
+            users[group] += other.users[otherGroup];
+            cycles[group] += other.cycles[otherGroup];
+            sums[group] += other.sums[otherGroup];
+            sumsOfSquares[group] += other.sumsOfSquares[otherGroup];
+            withinSquares[group] += other.withinSquares[otherGroup];
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.reddot.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reddot.api.dto.CyclePredictionDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-user prediction cache keyed by (userId, history version, date). A prediction only changes
+ * when the user's periods or profile change, or when the day rolls over; writers call
+ * {@link #invalidate(Long)} to move the user to a new version and the date takes care of the rest,
+ * so stale entries are never read and simply age out.
+ *
+ * <p>Versions are drawn from one node-wide sequence, so a user whose version entry was evicted
+ * gets a number no earlier entry can have. Other nodes see a write once their entry expires
+ * ({@code app.prediction-cache.ttl}). Published as {@code cache.*} metrics under the name
+ * {@code predictions}, plus {@code cache.hit.ratio}.
+ */
+@Component
+public class PredictionCache {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.prediction-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${app.prediction-cache.ttl:1h}")
+    private Duration ttl;
+    
+    private final AtomicLong versionSequence = new AtomicLong();
+    
+    private Cache<Long, Long> versions;
+    private Cache<Key, CyclePredictionDto> predictions;
+    
+    record Key(long userId, long version, LocalDate date) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .build();
+        predictions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, predictions, "predictions");
+        Gauge.builder("cache.hit.ratio", predictions, cache -> cache.stats().hitRate())
+                .tag("cache", "predictions")
+                .register(meterRegistry);
+    }
+    
+    public CyclePredictionDto get(Long userId, LocalDate date, Supplier<CyclePredictionDto> loader) {
+        return predictions.get(key(userId, date), k -> loader.get());
+    }
+    
+    /**
+     * The user's current history version, to pass back to {@link #put} for a prediction that
+     * completes later.
+     */
+    public long currentVersion(Long userId) {
+        return versions.get(userId, id -> versionSequence.incrementAndGet());
+    }
+    
+    /**
+     * Stores a prediction computed from the history at {@code version}. If the user has moved to
+     * a newer version since, the entry can never be read and just ages out.
+     */
+    public void put(Long userId, long version, LocalDate date, CyclePredictionDto prediction) {
+        predictions.put(new Key(userId, version, date), prediction);
+    }
+    
+    /**
+     * Moves the user to a new history version. Inside a transaction this is repeated after
+     * completion, so a prediction computed from the pre-commit rows cannot be served afterwards.
+     */
+    public void invalidate(Long userId) {
+        bump(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bump(userId);
+                }
+            });
+        }
+    }
+    
+    long size() {
+        return predictions.estimatedSize();
+    }
+    
+    private Key key(Long userId, LocalDate date) {
+        return new Key(userId, currentVersion(userId), date);
+    }
+    
+    private void bump(Long userId) {
+        versions.put(userId, versionSequence.incrementAndGet());
+    }
+}
@@ -1,115 +1,310 @@
 package com.reddot.api.service;
 
 import com.reddot.api.dto.CyclePredictionDto;
-import com.reddot.api.model.Period;
+import com.reddot.api.model.Cycle;
 import com.reddot.api.model.User;
+import com.reddot.api.repository.CycleRepository;
 import com.reddot.api.repository.PeriodRepository;
-import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.CurrentUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class PredictionService {
     
+    public static final String RULE_BASED = "rule-based";
+    
+    private static final Logger log = LoggerFactory.getLogger(PredictionService.class);
+    
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUser currentUser;
     
     @Autowired
     private PeriodRepository periodRepository;
     
     @Autowired
-    private RestTemplate restTemplate;
+    private CycleRepository cycleRepository;
+    
+    @Autowired
+    private PredictionCache predictionCache;
+    
+    @Autowired
+    private List<CyclePredictor> predictors;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private PopulationPriors populationPriors;
     
-    @Value("${prediction.service.url:http://localhost:8001}")
-    private String predictionServiceUrl;
+    @Value("${prediction.engine:local}")
+    private String engine;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @Value("${prediction.history-limit:24}")
+    private int historyLimit;
+    
+    @Value("${prediction.latency-budget:300ms}")
+    private Duration latencyBudget;
+    
+    @Value("${prediction.engine-threads:20}")
+    private int engineThreads;
+    
+    private CyclePredictor predictor;
+    private BayesianCyclePredictor modelPredictor; // set when the engine works from stored models
+    private ThreadPoolExecutor engineExecutor;
+    
+    @PostConstruct
+    public void init() {
+        predictor = predictors.stream()
+                .filter(p -> p.getName().equals(engine))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown prediction.engine: " + engine));
+        if (predictor instanceof BayesianCyclePredictor bayesian) {
+            modelPredictor = bayesian;
+        }
+        
+        // No queue: when every thread is busy the request gets the rule-based answer straight away
+        AtomicInteger threadCount = new AtomicInteger();
+        engineExecutor = new ThreadPoolExecutor(engineThreads, engineThreads, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "prediction-engine-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        engineExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        engineExecutor.shutdownNow();
     }
     
     public CyclePredictionDto getPrediction() {
-        User user = getCurrentUser();
-        List<Period> periods = periodRepository.findByUserOrderByStartDateDesc(user);
-        
-        // If we have enough data, use ML service, otherwise use fallback logic
-        if (periods.size() >= 3) {
-            try {
-                return getMLPrediction(user, periods);
-            } catch (Exception e) {
-                // Fallback to rule-based prediction
-                return getRuleBasedPrediction(user, periods);
-            }
-        } else {
-            return getRuleBasedPrediction(user, periods);
+        return predictionCache.get(currentUser.getId(), LocalDate.now(), this::loadPrediction);
+    }
+    
+    // The current cycle row is kept up to date by CycleMaterializer on every period write
+    private CyclePredictionDto loadPrediction() {
+        return cycleRepository.findFirstByUserOrderByCycleStartDateDesc(currentUser.getReference())
+                .filter(cycle -> cycle.getPredictedPeriodStart() != null)
+                .map(PredictionService::toDto)
+                .orElseGet(() -> {
+                    UserSnapshot user = currentUser.snapshot();
+                    CyclePredictionDto modelled = predictFromModel(user);
+                    return modelled != null
+                        ? won(modelled, "model")
+                        : predict(user, recentPeriods(currentUser.getReference()));
+                });
+    }
+    
+    /**
+     * The user's last {@code prediction.history-limit} periods, most recent first: all that
+     * predictions look at, so long histories cost no more than short ones.
+     */
+    public List<PeriodDates> recentPeriods(User user) {
+        return periodRepository.findDatesByUser(user, PageRequest.of(0, historyLimit));
+    }
+    
+    public int getHistoryLimit() {
+        return historyLimit;
+    }
+    
+    /**
+     * Computes a fresh prediction within {@code prediction.latency-budget}. The engine runs on its
+     * own pool while the rule-based prediction is computed on the calling thread; if the engine has
+     * not answered when the budget runs out, the rule-based answer is returned and the engine's
+     * answer is kept for later (see {@link #onLateAnswer}). {@code source} tells which one won, and
+     * {@code prediction.source} counts it.
+     * <p>
+     * With the {@code bayesian} engine a user whose {@link CycleModel} is stored is answered from
+     * the model straight away, without the engine pool; {@code periods} is then not looked at.
+     *
+     * @param periods the user's periods, most recent first; only the first {@code prediction.history-limit} are used
+     */
+    public CyclePredictionDto predict(UserSnapshot user, List<PeriodDates> periods) {
+        CyclePredictionDto modelled = predictFromModel(user);
+        if (modelled != null) {
+            return won(modelled, "model");
+        }
+        if (periods.size() > historyLimit) {
+            periods = periods.subList(0, historyLimit);
+        }
+        // If we have enough data, use the prediction engine, otherwise use fallback logic
+        if (periods.size() < 3) {
+            return won(getRuleBasedPrediction(user, periods), "insufficient_history");
+        }
+        
+        long deadline = System.nanoTime() + latencyBudget.toNanos();
+        long version = predictionCache.currentVersion(user.id());
+        CycleHistory history = CycleHistory.of(user, periods);
+        CompletableFuture<CyclePredictionDto> engineCall;
+        try {
+            engineCall = CompletableFuture.supplyAsync(() -> predictor.predict(history), engineExecutor);
+        } catch (RejectedExecutionException e) {
+            return won(getRuleBasedPrediction(user, periods), "engine_busy");
+        }
+        
+        CyclePredictionDto ruleBased = getRuleBasedPrediction(user, periods);
+        try {
+            CyclePredictionDto dto = engineCall.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            dto.setSource(predictor.getName());
+            return won(dto, "in_budget");
+        } catch (TimeoutException e) {
+            LocalDate cycleStart = periods.get(0).startDate();
+            engineCall.thenAccept(late -> onLateAnswer(user.id(), cycleStart, version, late));
+            return won(ruleBased, "over_budget");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return won(ruleBased, "interrupted");
+        } catch (ExecutionException e) {
+            // Fallback to rule-based prediction
+            return won(ruleBased, "engine_error");
         }
     }
     
-    private CyclePredictionDto getMLPrediction(User user, List<Period> periods) {
-        Map<String, Object> requestData = new HashMap<>();
-        requestData.put("user_id", user.getId());
-        requestData.put("periods", periods.stream()
-                .map(p -> Map.of(
-                    "start_date", p.getStartDate().toString(),
-                    "end_date", p.getEndDate() != null ? p.getEndDate().toString() : null,
-                    "cycle_length", calculateCycleLength(periods, p)
-                ))
-                .collect(Collectors.toList()));
-        requestData.put("average_cycle_length", user.getAverageCycleLength());
-        requestData.put("average_period_length", user.getAveragePeriodLength());
+    /**
+     * Batch form of {@link #predict} for jobs: users with enough history go to the engine in one
+     * call, everyone else and anyone the engine could not answer gets the rule-based prediction.
+     *
+     * @param periodsByUser each user's periods, most recent first; users without periods may be absent
+     */
+    public Map<Long, CyclePredictionDto> predictAll(List<UserSnapshot> users, Map<Long, List<PeriodDates>> periodsByUser) {
+        List<CycleHistory> histories = new ArrayList<>();
+        Map<Long, CyclePredictionDto> modelled = new HashMap<>();
+        for (UserSnapshot user : users) {
+            List<PeriodDates> periods = periodsByUser.getOrDefault(user.id(), List.of());
+            CyclePredictionDto fromModel = predictFromModel(user);
+            if (fromModel != null) {
+                modelled.put(user.id(), fromModel);
+            } else if (periods.size() >= 3) {
+                histories.add(CycleHistory.of(user, periods));
+            }
+        }
         
+        Map<Long, CyclePredictionDto> predictions;
         try {
-            Map<String, Object> response = restTemplate.postForObject(
-                predictionServiceUrl + "/predict", requestData, Map.class);
-            
-            CyclePredictionDto dto = new CyclePredictionDto();
-            dto.setPredictedPeriodStart(LocalDate.parse((String) response.get("predicted_period_start")));
-            dto.setPredictedOvulationDate(LocalDate.parse((String) response.get("predicted_ovulation_date")));
-            dto.setFertileWindowStart(LocalDate.parse((String) response.get("fertile_window_start")));
-            dto.setFertileWindowEnd(LocalDate.parse((String) response.get("fertile_window_end")));
-            dto.setPredictionConfidence((Double) response.get("confidence"));
-            dto.setExplanation((String) response.get("explanation"));
-            dto.setIsIrregular((Boolean) response.get("is_irregular"));
-            dto.setEstimatedCycleLength(((Number) response.get("estimated_cycle_length")).intValue());
-            
-            return dto;
+            predictions = histories.isEmpty() ? new HashMap<>() : new HashMap<>(predictor.predictAll(histories));
         } catch (Exception e) {
-            throw new RuntimeException("Prediction service unavailable, using fallback", e);
+            predictions = new HashMap<>();
+        }
+        predictions.values().forEach(dto -> dto.setSource(predictor.getName()));
+        predictions.putAll(modelled);
+        
+        for (UserSnapshot user : users) {
+            if (!predictions.containsKey(user.id())) {
+                predictions.put(user.id(), getRuleBasedPrediction(user, periodsByUser.getOrDefault(user.id(), List.of())));
+            }
+        }
+        return predictions;
+    }
+    
+    /**
+     * An engine answer that missed the budget. If the rule-based answer was stored as the user's
+     * current cycle, it is replaced there; otherwise the answer goes into the prediction cache for
+     * the history it was computed from.
+     */
+    private void onLateAnswer(Long userId, LocalDate cycleStart, long version, CyclePredictionDto prediction) {
+        prediction.setSource(predictor.getName());
+        meterRegistry.counter("prediction.late.answers").increment();
+        try {
+            if (cycleRepository.replaceRuleBasedPrediction(userId, cycleStart, prediction) > 0) {
+                predictionCache.invalidate(userId);
+            } else {
+                predictionCache.put(userId, version, LocalDate.now(), prediction);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not store late prediction for user {}", userId, e);
         }
     }
     
-    private CyclePredictionDto getRuleBasedPrediction(User user, List<Period> periods) {
+    /**
+     * The {@code bayesian} engine's answer from the user's stored model, or null if that engine is
+     * not selected or the model covers fewer than three periods.
+     */
+    private CyclePredictionDto predictFromModel(UserSnapshot user) {
+        if (modelPredictor == null || user.cycleModel() == null || user.cycleModel().periodCount() < 3) {
+            return null;
+        }
+        CyclePredictionDto dto = modelPredictor.predict(user);
+        dto.setSource(modelPredictor.getName());
+        return dto;
+    }
+    
+    private CyclePredictionDto won(CyclePredictionDto prediction, String reason) {
+        meterRegistry.counter("prediction.source", "source", prediction.getSource(), "reason", reason).increment();
+        return prediction;
+    }
+    
+    private static CyclePredictionDto toDto(Cycle cycle) {
         CyclePredictionDto dto = new CyclePredictionDto();
+        dto.setPredictedPeriodStart(cycle.getPredictedPeriodStart());
+        dto.setPredictedPeriodStartEarliest(cycle.getPredictedPeriodStartEarliest());
+        dto.setPredictedPeriodStartLatest(cycle.getPredictedPeriodStartLatest());
+        dto.setPredictedOvulationDate(cycle.getPredictedOvulationDate());
+        dto.setFertileWindowStart(cycle.getFertileWindowStart());
+        dto.setFertileWindowEnd(cycle.getFertileWindowEnd());
+        dto.setPredictionConfidence(cycle.getPredictionConfidence());
+        dto.setExplanation(cycle.getExplanation());
+        dto.setIsIrregular(cycle.getIsIrregular());
+        dto.setEstimatedCycleLength(cycle.getEstimatedCycleLength());
+        dto.setSource(cycle.getPredictionSource());
+        return dto;
+    }
+    
+    /**
+     * The heuristic prediction used as the floor when the engine is slow, failing or lacks history.
+     *
+     * @param periods the user's periods, most recent first
+     */
+    public CyclePredictionDto getRuleBasedPrediction(UserSnapshot user, List<PeriodDates> periods) {
+        CyclePredictionDto dto = new CyclePredictionDto();
+        dto.setSource(RULE_BASED);
         
-        LocalDate lastPeriodStart = user.getLastPeriodStart();
+        LocalDate lastPeriodStart = user.lastPeriodStart();
         if (lastPeriodStart == null && !periods.isEmpty()) {
-            lastPeriodStart = periods.get(0).getStartDate();
+            lastPeriodStart = periods.get(0).startDate();
         }
         
+        // Without a cycle of their own, start from users like them
+        CycleLengthPosterior.Prior prior = periods.size() < 2 ? populationPriors.priorFor(user) : null;
+        
         if (lastPeriodStart == null) {
-            // No period data - use default
-            dto.setPredictedPeriodStart(LocalDate.now().plusDays(28));
+            // No period data - use the population's typical cycle
+            int typicalLength = (int) Math.round(prior.mean());
+            dto.setPredictedPeriodStart(LocalDate.now().plusDays(typicalLength));
             dto.setPredictionConfidence(0.3);
             dto.setExplanation("We don't have enough data yet. Please log your periods to get accurate predictions.");
-            dto.setEstimatedCycleLength(28);
+            dto.setEstimatedCycleLength(typicalLength);
             return dto;
         }
         
         // Calculate average cycle length from historical data
-        int avgCycleLength = calculateAverageCycleLength(periods, user.getAverageCycleLength());
+        CycleStats stats = CycleStats.of(CycleStats.startDays(periods), user.averageCycleLength());
+        int avgCycleLength = prior != null ? (int) Math.round(prior.mean()) : stats.averageCycleLength();
         
         // Predict next period
         LocalDate predictedPeriodStart = lastPeriodStart.plusDays(avgCycleLength);
@@ -124,12 +319,14 @@ public class PredictionService {
         dto.setFertileWindowStart(ovulationDate.minusDays(5));
         dto.setFertileWindowEnd(ovulationDate.plusDays(1));
         
-        // Calculate confidence based on data quality
-        double confidence = calculateConfidence(periods.size(), avgCycleLength);
+        // Calculate confidence based on data quality, or on how much cycles vary among similar users
+        double confidence = prior != null
+            ? Math.round(CycleLengthPosterior.of(prior, CycleModel.EMPTY).probabilityWithin(avgCycleLength, 2) * 100) / 100.0
+            : calculateConfidence(periods.size(), avgCycleLength);
         dto.setPredictionConfidence(confidence);
         
         // Check for irregularity
-        boolean isIrregular = checkIrregularity(periods, avgCycleLength);
+        boolean isIrregular = stats.isIrregular();
         dto.setIsIrregular(isIrregular);
         
         // Generate explanation
@@ -138,47 +335,6 @@ public class PredictionService {
         return dto;
     }
     
-    private int calculateAverageCycleLength(List<Period> periods, Integer userAverage) {
-        if (periods.size() < 2) {
-            return userAverage != null ? userAverage : 28;
-        }
-        
-        // Calculate cycle lengths from periods
-        int totalDays = 0;
-        int count = 0;
-        
-        for (int i = 0; i < periods.size() - 1; i++) {
-            LocalDate current = periods.get(i).getStartDate();
-            LocalDate next = periods.get(i + 1).getStartDate();
-            long days = ChronoUnit.DAYS.between(next, current);
-            if (days > 0 && days < 45) { // Filter outliers
-                totalDays += (int) days;
-                count++;
-            }
-        }
-        
-        if (count > 0) {
-            int calculated = totalDays / count;
-            // Weight with user's average if available
-            if (userAverage != null) {
-                return (calculated + userAverage) / 2;
-            }
-            return calculated;
-        }
-        
-        return userAverage != null ? userAverage : 28;
-    }
-    
-    private int calculateCycleLength(List<Period> periods, Period period) {
-        int index = periods.indexOf(period);
-        if (index < periods.size() - 1) {
-            LocalDate current = period.getStartDate();
-            LocalDate next = periods.get(index + 1).getStartDate();
-            return (int) ChronoUnit.DAYS.between(next, current);
-        }
-        return 28; // Default
-    }
-    
     private double calculateConfidence(int periodCount, int cycleLength) {
         // More periods = higher confidence
         // Standard cycle length (26-32 days) = higher confidence
@@ -187,21 +343,6 @@ public class PredictionService {
         return (dataConfidence + cycleConfidence) / 2.0;
     }
     
-    private boolean checkIrregularity(List<Period> periods, int avgCycleLength) {
-        if (periods.size() < 3) return false;
-        
-        int variance = 0;
-        for (int i = 0; i < periods.size() - 1; i++) {
-            LocalDate current = periods.get(i).getStartDate();
-            LocalDate next = periods.get(i + 1).getStartDate();
-            int cycleLength = (int) ChronoUnit.DAYS.between(next, current);
-            variance += Math.abs(cycleLength - avgCycleLength);
-        }
-        
-        int avgVariance = variance / (periods.size() - 1);
-        return avgVariance > 7; // More than 7 days variance = irregular
-    }
-    
     private String generateExplanation(int periodCount, int cycleLength, double confidence, boolean isIrregular) {
         StringBuilder explanation = new StringBuilder();
         
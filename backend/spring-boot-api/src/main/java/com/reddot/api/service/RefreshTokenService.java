@@ -0,0 +1,141 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.RefreshToken;
+import com.reddot.api.repository.RefreshTokenRepository;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.JwtTokenProvider;
+import com.reddot.api.security.RevokedTokenRegistry;
+import com.reddot.api.security.TokenClaims;
+import com.reddot.api.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues refresh tokens and rotates them on every use. Each token is single-use: the conditional
+ * UPDATE in {@link RefreshTokenRepository#markRotated} lets exactly one request rotate it, and
+ * presenting it again is treated as theft and revokes the whole session, which also cuts off the
+ * session's access tokens through {@link RevokedTokenRegistry}.
+ */
+@Service
+public class RefreshTokenService {
+    
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+    
+    @Transactional
+    public String issue(UserPrincipal principal, String sessionId) {
+        return issue(principal, sessionId, UUID.randomUUID().toString());
+    }
+    
+    private String issue(UserPrincipal principal, String sessionId, String jti) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(tokenProvider.getRefreshExpiration() * 1_000_000);
+        
+        RefreshToken token = new RefreshToken();
+        token.setJti(jti);
+        token.setUser(userRepository.getReferenceById(principal.getId()));
+        token.setSessionId(sessionId);
+        token.setExpiresAt(expiresAt);
+        token.setSessionRevoked(false);
+        refreshTokenRepository.save(token);
+        
+        return tokenProvider.generateRefreshToken(principal, jti, sessionId,
+            Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()));
+    }
+    
+    /**
+     * Consumes the presented refresh token and returns its replacement, or empty if the token was
+     * revoked or already used, in which case its session is revoked as well.
+     */
+    @Transactional
+    public Optional<String> rotate(TokenClaims claims, UserPrincipal principal) {
+        if (claims.jti() == null || claims.sessionId() == null) {
+            return Optional.empty();
+        }
+        
+        if (revokedTokenRegistry.isRevoked(claims.sessionId())) {
+            return Optional.empty();
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        String replacementJti = UUID.randomUUID().toString();
+        if (refreshTokenRepository.markRotated(claims.jti(), replacementJti, now) == 0) {
+            // Already rotated by another request or node: the old token is being replayed
+            revokeSession(claims.sessionId(), now);
+            return Optional.empty();
+        }
+        return Optional.of(issue(principal, claims.sessionId(), replacementJti));
+    }
+    
+    /**
+     * Exchanges a refresh token issued before rotation, which carries neither a jti nor a session,
+     * for a rotating one in {@code sessionId}. The old token is stored as already rotated under an
+     * id derived from its bytes, so a second use fails on the primary key with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    @Transactional
+    public String rotateLegacy(String token, TokenClaims claims, UserPrincipal principal, String sessionId) {
+        String replacementJti = UUID.randomUUID().toString();
+        
+        RefreshToken used = new RefreshToken();
+        used.setJti(UUID.nameUUIDFromBytes(token.getBytes(StandardCharsets.UTF_8)).toString());
+        used.setUser(userRepository.getReferenceById(principal.getId()));
+        used.setSessionId(sessionId);
+        used.setExpiresAt(LocalDateTime.ofInstant(claims.expiration(), ZoneId.systemDefault()));
+        used.setRevokedAt(LocalDateTime.now());
+        used.setReplacedBy(replacementJti);
+        used.setSessionRevoked(false);
+        refreshTokenRepository.saveAndFlush(used);
+        
+        return issue(principal, sessionId, replacementJti);
+    }
+    
+    @Transactional
+    public void revokeSession(String sessionId) {
+        revokeSession(sessionId, LocalDateTime.now());
+    }
+    
+    @Scheduled(cron = "${jwt.revocation.cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+    
+    private void revokeSession(String sessionId, LocalDateTime now) {
+        refreshTokenRepository.revokeSession(sessionId, now);
+        LocalDateTime until = now.plusNanos(tokenProvider.getRefreshExpiration() * 1_000_000);
+        afterCommit(() -> revokedTokenRegistry.revoke(sessionId, until));
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,206 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the Python prediction service ({@code POST /predict}) through the pooled, time-bounded
+ * client from {@code RestTemplateConfig}. A bulkhead caps concurrent calls and a circuit breaker
+ * stops calling an unhealthy service; both reject by throwing immediately, which sends
+ * {@link PredictionService} straight to its rule-based prediction.
+ */
+@Component
+public class RemoteCyclePredictor implements CyclePredictor {
+    
+    @Autowired
+    private RestTemplate restTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${prediction.service.url:http://localhost:8001}")
+    private String predictionServiceUrl;
+    
+    @Value("${prediction.service.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+    
+    @Value("${prediction.service.circuit-breaker.window-size:20}")
+    private int windowSize;
+    
+    @Value("${prediction.service.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+    
+    @Value("${prediction.service.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+    
+    @Value("${prediction.service.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+    
+    @Value("${prediction.service.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+    
+    private Semaphore bulkhead;
+    private CircuitBreaker circuitBreaker;
+    private Timer successTimer;
+    private Timer failureTimer;
+    
+    @PostConstruct
+    public void init() {
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+            openDuration.toNanos(), halfOpenCalls);
+        
+        successTimer = callTimer("success");
+        failureTimer = callTimer("failure");
+        Gauge.builder("prediction.remote.circuit.state", this, p -> p.circuitBreaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        Gauge.builder("prediction.remote.in.flight", this, p -> maxConcurrentCalls - p.bulkhead.availablePermits())
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public String getName() {
+        return "remote";
+    }
+    
+    @Override
+    public CyclePredictionDto predict(CycleHistory history) {
+        if (!circuitBreaker.tryAcquire()) {
+            meterRegistry.counter("prediction.remote.rejected", "reason", "circuit_open").increment();
+            throw new RuntimeException("Prediction service circuit is open, using fallback");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.release();
+            meterRegistry.counter("prediction.remote.rejected", "reason", "bulkhead_full").increment();
+            throw new RuntimeException("Too many concurrent prediction calls, using fallback");
+        }
+        
+        long start = System.nanoTime();
+        try {
+            CyclePredictionDto dto = call(history);
+            circuitBreaker.onSuccess();
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return dto;
+        } catch (RuntimeException e) {
+            // A 4xx means we sent something the service rejected, not that it is unhealthy
+            if (e.getCause() instanceof HttpClientErrorException) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+    
+    /**
+     * One {@code POST /predict/batch} call for the whole list. It goes through the circuit breaker
+     * but not the bulkhead, which is sized for interactive requests; batch callers bound their own
+     * concurrency.
+     */
+    @Override
+    public Map<Long, CyclePredictionDto> predictAll(List<CycleHistory> histories) {
+        if (!circuitBreaker.tryAcquire()) {
+            meterRegistry.counter("prediction.remote.rejected", "reason", "circuit_open").increment();
+            throw new RuntimeException("Prediction service circuit is open, using fallback");
+        }
+        
+        List<Map<String, Object>> requests = new ArrayList<>(histories.size());
+        for (CycleHistory history : histories) {
+            requests.add(toRequest(history));
+        }
+        
+        try {
+            Map<String, Object> response = restTemplate.postForObject(
+                predictionServiceUrl + "/predict/batch", Map.of("requests", requests), Map.class);
+            circuitBreaker.onSuccess();
+            
+            Map<Long, CyclePredictionDto> predictions = new HashMap<>();
+            for (Map<String, Object> result : (List<Map<String, Object>>) response.get("results")) {
+                Map<String, Object> prediction = (Map<String, Object>) result.get("prediction");
+                if (prediction != null) {
+                    predictions.put(((Number) result.get("user_id")).longValue(), toDto(prediction));
+                }
+            }
+            return predictions;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw new RuntimeException("Prediction service rejected the batch, using fallback", e);
+        } catch (Exception e) {
+            circuitBreaker.onFailure();
+            throw new RuntimeException("Prediction service unavailable, using fallback", e);
+        }
+    }
+    
+    CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+    
+    private CyclePredictionDto call(CycleHistory history) {
+        try {
+            Map<String, Object> response = restTemplate.postForObject(
+                predictionServiceUrl + "/predict", toRequest(history), Map.class);
+            return toDto(response);
+        } catch (Exception e) {
+            throw new RuntimeException("Prediction service unavailable, using fallback", e);
+        }
+    }
+    
+    private static Map<String, Object> toRequest(CycleHistory history) {
+        int[] starts = history.startDays();
+        List<Map<String, Object>> periods = new ArrayList<>(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            periods.add(Map.of(
+                "start_date", LocalDate.ofEpochDay(starts[i]).toString(),
+                "cycle_length", i < starts.length - 1 ? starts[i] - starts[i + 1] : 28
+            ));
+        }
+        
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("user_id", history.userId());
+        requestData.put("periods", periods);
+        requestData.put("average_cycle_length", history.averageCycleLength());
+        requestData.put("average_period_length", history.averagePeriodLength());
+        return requestData;
+    }
+    
+    private static CyclePredictionDto toDto(Map<String, Object> response) {
+        CyclePredictionDto dto = new CyclePredictionDto();
+        dto.setPredictedPeriodStart(LocalDate.parse((String) response.get("predicted_period_start")));
+        dto.setPredictedOvulationDate(LocalDate.parse((String) response.get("predicted_ovulation_date")));
+        dto.setFertileWindowStart(LocalDate.parse((String) response.get("fertile_window_start")));
+        dto.setFertileWindowEnd(LocalDate.parse((String) response.get("fertile_window_end")));
+        dto.setPredictionConfidence(((Number) response.get("confidence")).doubleValue());
+        dto.setExplanation((String) response.get("explanation"));
+        dto.setIsIrregular((Boolean) response.get("is_irregular"));
+        dto.setEstimatedCycleLength(((Number) response.get("estimated_cycle_length")).intValue());
+        return dto;
+    }
+    
+    private Timer callTimer(String outcome) {
+        return Timer.builder("prediction.remote.calls")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
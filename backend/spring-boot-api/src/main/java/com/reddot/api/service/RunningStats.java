@@ -0,0 +1,38 @@
+package com.reddot.api.service;
+
+/**
+ * Count, mean and sum of squared deviations ({@code m2}) of a stream of values, updated one value
+ * at a time with Welford's method so adding and removing values never needs the values again.
+ * Removal is the exact inverse of {@link #add}, so a value that was added can be taken out again.
+ */
+public record RunningStats(long count, double mean, double m2) {
+    
+    public static final RunningStats EMPTY = new RunningStats(0, 0, 0);
+    
+    public RunningStats add(double value) {
+        long n = count + 1;
+        double delta = value - mean;
+        double newMean = mean + delta / n;
+        return new RunningStats(n, newMean, m2 + delta * (value - newMean));
+    }
+    
+    public RunningStats remove(double value) {
+        if (count <= 1) {
+            return EMPTY;
+        }
+        long n = count - 1;
+        double newMean = (count * mean - value) / n;
+        return new RunningStats(n, newMean, Math.max(0, m2 - (value - mean) * (value - newMean)));
+    }
+    
+    /**
+     * Population variance, like {@link CycleStats#variance()}.
+     */
+    public double variance() {
+        return count > 0 ? m2 / count : 0;
+    }
+    
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+}
@@ -0,0 +1,10 @@
+package com.reddot.api.service;
+
+/**
+ * How often the user logged one symptom type, grouped in the database instead of loading every
+ * {@link com.reddot.api.model.Symptom} with its notes.
+ *
+ * @param averageSeverity mean of the entries that have a severity, null if none has
+ */
+public record SymptomTypeCount(String symptomType, Long count, Double averageSeverity) {
+}
@@ -0,0 +1,111 @@
+package com.reddot.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded in-process cache of {@link UserSnapshot}s in front of {@link UserRepository}, keyed by id
+ * with a secondary email index. Anything that modifies a user must call {@link #evict(User)} so the
+ * next read reloads the row. Hit, miss and eviction counts are published as {@code cache.*} metrics
+ * under the names {@code users.byId} and {@code users.byEmail}.
+ */
+@Component
+public class UserCache {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.user-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${app.user-cache.ttl:10m}")
+    private Duration ttl;
+    
+    private Cache<Long, UserSnapshot> byId;
+    private Cache<String, Long> idByEmail;
+    
+    @PostConstruct
+    public void init() {
+        byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        idByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "users.byEmail");
+    }
+    
+    public Optional<UserSnapshot> getById(Long id) {
+        UserSnapshot snapshot = byId.getIfPresent(id);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        return userRepository.findWithHealthConditionsById(id).map(this::put);
+    }
+    
+    public Optional<UserSnapshot> getByEmail(String email) {
+        Long id = idByEmail.getIfPresent(email);
+        if (id != null) {
+            UserSnapshot snapshot = byId.getIfPresent(id);
+            if (snapshot != null) {
+                return Optional.of(snapshot);
+            }
+        }
+        return userRepository.findWithHealthConditionsByEmail(email).map(this::put);
+    }
+    
+    /**
+     * Drops the cached entry for this user. Inside a transaction the eviction is repeated after
+     * commit, so a concurrent read cannot re-cache the pre-commit row.
+     */
+    public void evict(User user) {
+        evictNow(user.getId(), user.getEmail());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Long id = user.getId();
+            String email = user.getEmail();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(id, email);
+                }
+            });
+        }
+    }
+    
+    private void evictNow(Long id, String email) {
+        if (id != null) {
+            byId.invalidate(id);
+        }
+        if (email != null) {
+            idByEmail.invalidate(email);
+        }
+    }
+    
+    private UserSnapshot put(User user) {
+        UserSnapshot snapshot = UserSnapshot.from(user);
+        byId.put(snapshot.id(), snapshot);
+        idByEmail.put(snapshot.email(), snapshot.id());
+        return snapshot;
+    }
+}
@@ -3,9 +3,8 @@ package com.reddot.api.service;
 import com.reddot.api.dto.UserProfileDto;
 import com.reddot.api.model.User;
 import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,21 +19,25 @@ public class UserProfileService {
     @Autowired
     private UserRepository userRepository;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
+    @Autowired
+    private CurrentUser currentUser;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    @Autowired
+    private PredictionCache predictionCache;
+    
+    @Autowired
+    private CycleMaterializer cycleMaterializer;
     
     public UserProfileDto getProfile() {
-        User user = getCurrentUser();
-        return mapToDto(user);
+        return mapToDto(currentUser.snapshot());
     }
     
     @Transactional
     public UserProfileDto updateProfile(UserProfileDto profileDto) {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         
         user.setFirstName(profileDto.getFirstName());
         user.setLastName(profileDto.getLastName());
@@ -65,12 +68,16 @@ public class UserProfileService {
         }
         
         user = userRepository.save(user);
-        return mapToDto(user);
+        userCache.evict(user);
+        // Cycle averages and last period start feed the prediction; the cycle rows themselves do not change
+        cycleMaterializer.refreshPredictionAfterCommit(user.getId());
+        predictionCache.invalidate(user.getId());
+        return mapToDto(UserSnapshot.from(user));
     }
     
     @Transactional
     public void completeOnboarding(UserProfileDto profileDto) {
-        User user = getCurrentUser();
+        User user = currentUser.get();
         
         // Set all onboarding fields
         updateProfile(profileDto);
@@ -81,29 +88,30 @@ public class UserProfileService {
             user.setConsentDate(java.time.LocalDateTime.now());
             userRepository.save(user);
         }
+        userCache.evict(user);
     }
     
-    private UserProfileDto mapToDto(User user) {
+    private UserProfileDto mapToDto(UserSnapshot user) {
         UserProfileDto dto = new UserProfileDto();
-        dto.setId(user.getId());
-        dto.setEmail(user.getEmail());
-        dto.setFirstName(user.getFirstName());
-        dto.setLastName(user.getLastName());
-        dto.setDateOfBirth(user.getDateOfBirth());
-        dto.setAge(user.getAge());
-        dto.setHeight(user.getHeight());
-        dto.setWeight(user.getWeight());
-        dto.setAverageCycleLength(user.getAverageCycleLength());
-        dto.setAveragePeriodLength(user.getAveragePeriodLength());
-        dto.setLastPeriodStart(user.getLastPeriodStart());
-        dto.setHealthConditions(user.getHealthConditions());
-        dto.setActivityLevel(user.getActivityLevel());
-        dto.setDietType(user.getDietType());
-        dto.setConsentGiven(user.getConsentGiven());
-        dto.setDataSharingEnabled(user.getDataSharingEnabled());
-        dto.setAnonymousMode(user.getAnonymousMode());
-        dto.setRole(user.getRole().name());
-        dto.setEmailVerified(user.getEmailVerified());
+        dto.setId(user.id());
+        dto.setEmail(user.email());
+        dto.setFirstName(user.firstName());
+        dto.setLastName(user.lastName());
+        dto.setDateOfBirth(user.dateOfBirth());
+        dto.setAge(user.age());
+        dto.setHeight(user.height());
+        dto.setWeight(user.weight());
+        dto.setAverageCycleLength(user.averageCycleLength());
+        dto.setAveragePeriodLength(user.averagePeriodLength());
+        dto.setLastPeriodStart(user.lastPeriodStart());
+        dto.setHealthConditions(user.healthConditions());
+        dto.setActivityLevel(user.activityLevel());
+        dto.setDietType(user.dietType());
+        dto.setConsentGiven(user.consentGiven());
+        dto.setDataSharingEnabled(user.dataSharingEnabled());
+        dto.setAnonymousMode(user.anonymousMode());
+        dto.setRole(user.role().name());
+        dto.setEmailVerified(user.emailVerified());
         return dto;
     }
 }
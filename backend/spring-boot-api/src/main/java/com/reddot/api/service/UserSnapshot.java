@@ -0,0 +1,63 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.User;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Immutable, detached copy of a user row as held by {@link UserCache}. Deliberately excludes the
+ * password hash and verification token.
+ */
+public record UserSnapshot(
+    Long id,
+    String email,
+    String firstName,
+    String lastName,
+    LocalDate dateOfBirth,
+    Integer age,
+    Double height,
+    Double weight,
+    Integer averageCycleLength,
+    Integer averagePeriodLength,
+    LocalDate lastPeriodStart,
+    Set<String> healthConditions,
+    String activityLevel,
+    String dietType,
+    Boolean consentGiven,
+    Boolean dataSharingEnabled,
+    Boolean anonymousMode,
+    User.Role role,
+    Boolean emailVerified,
+    Boolean active,
+    int statusVersion,
+    CycleModel cycleModel
+) {
+    
+    public static UserSnapshot from(User user) {
+        return new UserSnapshot(
+            user.getId(),
+            user.getEmail(),
+            user.getFirstName(),
+            user.getLastName(),
+            user.getDateOfBirth(),
+            user.getAge(),
+            user.getHeight(),
+            user.getWeight(),
+            user.getAverageCycleLength(),
+            user.getAveragePeriodLength(),
+            user.getLastPeriodStart(),
+            user.getHealthConditions() != null ? Set.copyOf(user.getHealthConditions()) : Set.of(),
+            user.getActivityLevel(),
+            user.getDietType(),
+            user.getConsentGiven(),
+            user.getDataSharingEnabled(),
+            user.getAnonymousMode(),
+            user.getRole(),
+            user.getEmailVerified(),
+            user.getActive(),
+            user.getStatusVersion() != null ? user.getStatusVersion() : 0,
+            CycleModel.from(user)
+        );
+    }
+}
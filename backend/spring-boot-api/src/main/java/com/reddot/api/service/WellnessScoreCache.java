@@ -0,0 +1,104 @@
+package com.reddot.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reddot.api.dto.DashboardDto;
+import com.reddot.api.model.WellnessLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Per-user {@link WellnessWindow}s, so the 30-day wellness score is computed without a query. A
+ * window is loaded with one grouped query on first use and {@link #logged(WellnessLog) kept up to
+ * date} by the write path; it rolls forward by itself when the day changes. Entries expire
+ * {@code app.wellness-cache.ttl} after loading, which bounds how long a log written on another
+ * node goes unseen. Published as {@code cache.*} metrics under the name {@code wellnessWindows}.
+ */
+@Component
+public class WellnessScoreCache {
+    
+    private static final String SUM_WELLNESS_BY_DAY =
+        "SELECT date, COUNT(*) AS entries, SUM(water_intake) AS water_sum, COUNT(water_intake) AS water_count, " +
+        "SUM(sleep_hours) AS sleep_sum, COUNT(sleep_hours) AS sleep_count, " +
+        "SUM(exercise_minutes) AS exercise_sum, COUNT(exercise_minutes) AS exercise_count " +
+        "FROM wellness_logs WHERE user_id = :userId AND date >= :from GROUP BY date";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.wellness-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${app.wellness-cache.ttl:1h}")
+    private Duration ttl;
+    
+    private Cache<Long, WellnessWindow> windows;
+    
+    @PostConstruct
+    public void init() {
+        windows = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, windows, "wellnessWindows");
+    }
+    
+    public DashboardDto.WellnessScore score(Long userId, LocalDate today) {
+        DashboardDto.WellnessScore score = windows.get(userId, id -> load(id, today)).score(today);
+        if (score == null) {
+            // Asked about an earlier day than the window has moved to
+            score = load(userId, today).score(today);
+        }
+        return score;
+    }
+    
+    /**
+     * Adds a saved log to the user's window, if one is loaded. Inside a transaction the window is
+     * dropped again unless the transaction commits with that same window still cached, so a window
+     * loaded while the log was uncommitted, or holding a rolled-back log, is never served.
+     */
+    public void logged(WellnessLog log) {
+        Long userId = log.getUser().getId();
+        WellnessWindow window = windows.getIfPresent(userId);
+        if (window != null) {
+            window.add(log.getDate(), log.getWaterIntake(), log.getSleepHours(), log.getExerciseMinutes());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED || window == null || windows.getIfPresent(userId) != window) {
+                        windows.invalidate(userId);
+                    }
+                }
+            });
+        }
+    }
+    
+    private WellnessWindow load(Long userId, LocalDate today) {
+        WellnessWindow window = new WellnessWindow(today);
+        Map<String, Object> params = Map.of("userId", userId, "from", today.minusDays(WellnessWindow.DAYS));
+        namedParameterJdbcTemplate.query(SUM_WELLNESS_BY_DAY, params, rs -> {
+            window.add(rs.getObject("date", LocalDate.class), rs.getLong("entries"),
+                rs.getLong("water_sum"), rs.getLong("water_count"),
+                rs.getLong("sleep_sum"), rs.getLong("sleep_count"),
+                rs.getLong("exercise_sum"), rs.getLong("exercise_count"));
+        });
+        return window;
+    }
+}
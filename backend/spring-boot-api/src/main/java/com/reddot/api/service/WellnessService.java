@@ -6,11 +6,9 @@ import com.reddot.api.model.User;
 import com.reddot.api.model.WellnessLog;
 import com.reddot.api.repository.MoodRepository;
 import com.reddot.api.repository.SymptomRepository;
-import com.reddot.api.repository.UserRepository;
 import com.reddot.api.repository.WellnessLogRepository;
+import com.reddot.api.security.CurrentUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,27 +28,30 @@ public class WellnessService {
     private MoodRepository moodRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUser currentUser;
     
-    private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Autowired
+    private WellnessScoreCache wellnessScoreCache;
     
     @Transactional
     public WellnessLog logWellness(WellnessLog log) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
+        // Always a new row: merging a posted id would overwrite that log and count it twice in the cached window
+        log.setId(null);
         log.setUser(user);
         if (log.getDate() == null) {
             log.setDate(LocalDate.now());
         }
-        return wellnessLogRepository.save(log);
+        log = wellnessLogRepository.save(log);
+        wellnessScoreCache.logged(log);
+        return log;
     }
     
     public List<WellnessLog> getWellnessLogs(LocalDate startDate, LocalDate endDate) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         if (startDate != null && endDate != null) {
             return wellnessLogRepository.findByUserAndDateRange(user, startDate, endDate);
         }
@@ -59,16 +60,18 @@ public class WellnessService {
     
     @Transactional
     public Symptom logSymptom(Symptom symptom) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         symptom.setUser(user);
         if (symptom.getDate() == null) {
             symptom.setDate(LocalDate.now());
         }
-        return symptomRepository.save(symptom);
+        symptom = symptomRepository.save(symptom);
+        analyticsRollupService.symptomLogged(user.getId(), symptom.getSymptomType(), symptom.getSeverity());
+        return symptom;
     }
     
     public List<Symptom> getSymptoms(LocalDate startDate, LocalDate endDate) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         if (startDate != null && endDate != null) {
             return symptomRepository.findByUserAndDateRange(user, startDate, endDate);
         }
@@ -77,16 +80,18 @@ public class WellnessService {
     
     @Transactional
     public Mood logMood(Mood mood) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         mood.setUser(user);
         if (mood.getDate() == null) {
             mood.setDate(LocalDate.now());
         }
-        return moodRepository.save(mood);
+        mood = moodRepository.save(mood);
+        analyticsRollupService.moodLogged(user.getId(), mood.getMoodType(), mood.getIntensity());
+        return mood;
     }
     
     public List<Mood> getMoods(LocalDate startDate, LocalDate endDate) {
-        User user = getCurrentUser();
+        User user = currentUser.getReference();
         if (startDate != null && endDate != null) {
             return moodRepository.findByUserAndDateRange(user, startDate, endDate);
         }
@@ -0,0 +1,107 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.DashboardDto;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * One user's wellness logs from {@code today - DAYS} onwards as daily buckets of the log count and
+ * the sums and counts of the non-null water, sleep and exercise values, with running totals over
+ * {@code today - DAYS} through {@code today}. Logs dated after today wait in their bucket until the
+ * window reaches them. Thread-safe.
+ */
+final class WellnessWindow {
+    
+    static final int DAYS = 30;
+    
+    private static final int ENTRIES = 0;
+    private static final int WATER_SUM = 1;
+    private static final int WATER_COUNT = 2;
+    private static final int SLEEP_SUM = 3;
+    private static final int SLEEP_COUNT = 4;
+    private static final int EXERCISE_SUM = 5;
+    private static final int EXERCISE_COUNT = 6;
+    private static final int FIELDS = 7;
+    
+    private final NavigableMap<Long, long[]> buckets = new TreeMap<>();
+    private final long[] totals = new long[FIELDS];
+    private long today;
+    
+    WellnessWindow(LocalDate today) {
+        this.today = today.toEpochDay();
+    }
+    
+    synchronized void add(LocalDate date, Integer water, Integer sleep, Integer exercise) {
+        add(date, 1, value(water), count(water), value(sleep), count(sleep), value(exercise), count(exercise));
+    }
+    
+    /**
+     * Adds a day's worth of already aggregated logs.
+     */
+    synchronized void add(LocalDate date, long entries, long waterSum, long waterCount,
+                          long sleepSum, long sleepCount, long exerciseSum, long exerciseCount) {
+        long day = date.toEpochDay();
+        if (day < today - DAYS) {
+            return;
+        }
+        long[] delta = {entries, waterSum, waterCount, sleepSum, sleepCount, exerciseSum, exerciseCount};
+        long[] bucket = buckets.computeIfAbsent(day, d -> new long[FIELDS]);
+        for (int i = 0; i < FIELDS; i++) {
+            bucket[i] += delta[i];
+            if (day <= today) {
+                totals[i] += delta[i];
+            }
+        }
+    }
+    
+    /**
+     * The wellness score over {@code date - DAYS} through {@code date}, rolling the window forward
+     * first if the day has changed; null if {@code date} is before the window's day, whose older
+     * buckets are gone.
+     */
+    synchronized DashboardDto.WellnessScore score(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day < today) {
+            return null;
+        }
+        if (day > today) {
+            rollTo(day);
+        }
+        double score = 50.0;
+        if (totals[ENTRIES] > 0) {
+            score = AnalyticsService.wellnessScore(
+                average(totals[WATER_SUM], totals[WATER_COUNT]),
+                average(totals[SLEEP_SUM], totals[SLEEP_COUNT]),
+                average(totals[EXERCISE_SUM], totals[EXERCISE_COUNT]));
+        }
+        return new DashboardDto.WellnessScore(Math.round(score), AnalyticsService.getWellnessLevel(score), totals[ENTRIES]);
+    }
+    
+    // At most DAYS + 1 buckets to sum, once per user per day
+    private void rollTo(long day) {
+        buckets.headMap(day - DAYS, false).clear();
+        today = day;
+        Arrays.fill(totals, 0);
+        for (Map.Entry<Long, long[]> entry : buckets.headMap(day, true).entrySet()) {
+            for (int i = 0; i < FIELDS; i++) {
+                totals[i] += entry.getValue()[i];
+            }
+        }
+    }
+    
+    private static long value(Integer value) {
+        return value != null ? value : 0;
+    }
+    
+    private static long count(Integer value) {
+        return value != null ? 1 : 0;
+    }
+    
+    private static double average(long sum, long count) {
+        return count > 0 ? (double) sum / count : 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.reddot.api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reddot.api.service.PeriodDates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Period histories to replay, each most recent first.
+ *
+ * <p>{@link #synthetic} draws regular, irregular, trending and noisy histories (duplicates, short
+ * gaps and skipped months) from a fixed seed. {@link #load} reads an anonymized export in the
+ * format of {@code prediction/parity-cases.json}: {@code {"cases": [{"averageCycleLength": 28,
+ * "startDates": ["2025-11-03", ...]}]}}, with user ids and everything but start dates removed.
+ */
+public final class BacktestHistories {
+    
+    public record History(Integer averageCycleLength, List<PeriodDates> periods) {
+    }
+    
+    private BacktestHistories() {
+    }
+    
+    public static List<History> synthetic(int count, long seed) {
+        Random random = new Random(seed);
+        List<History> histories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            histories.add(syntheticHistory(random));
+        }
+        return histories;
+    }
+    
+    public static List<History> load(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+    
+    public static List<History> fixtures() throws IOException {
+        try (InputStream in = BacktestHistories.class.getResourceAsStream("/prediction/parity-cases.json")) {
+            return read(in);
+        }
+    }
+    
+    private static List<History> read(InputStream in) throws IOException {
+        List<History> histories = new ArrayList<>();
+        for (JsonNode entry : new ObjectMapper().readTree(in).get("cases")) {
+            List<PeriodDates> periods = new ArrayList<>();
+            for (JsonNode date : entry.get("startDates")) {
+                LocalDate start = LocalDate.parse(date.asText());
+                periods.add(new PeriodDates(start, start.plusDays(4)));
+            }
+            periods.sort((a, b) -> b.startDate().compareTo(a.startDate()));
+            JsonNode average = entry.get("averageCycleLength");
+            histories.add(new History(average == null || average.isNull() ? null : average.asInt(), periods));
+        }
+        return histories;
+    }
+    
+    private static History syntheticHistory(Random random) {
+        String kind = switch (random.nextInt(5)) {
+            case 0, 1 -> "regular";
+            case 2 -> "irregular";
+            case 3 -> "trending";
+            default -> "noisy";
+        };
+        int count = 4 + random.nextInt(kind.equals("regular") ? 12 : 24);
+        int base = 26 + random.nextInt(7);
+        double drift = (random.nextBoolean() ? 1 : -1) * (0.3 + random.nextDouble());
+        
+        // Built oldest first so trends run forward in time
+        LocalDate day = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365));
+        List<PeriodDates> periods = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            periods.add(0, new PeriodDates(day, day.plusDays(3 + random.nextInt(4))));
+            int length = switch (kind) {
+                case "regular" -> base + random.nextInt(5) - 2;
+                case "irregular" -> 18 + random.nextInt(35);
+                case "trending" -> (int) Math.round(base + drift * i) + random.nextInt(3) - 1;
+                default -> random.nextInt(8) == 0 ? base * 2 : base + random.nextInt(7) - 3;
+            };
+            day = day.plusDays(Math.max(1, length));
+        }
+        Integer average = random.nextInt(3) == 0 ? null : base + random.nextInt(5) - 2;
+        return new History(average, periods);
+    }
+}
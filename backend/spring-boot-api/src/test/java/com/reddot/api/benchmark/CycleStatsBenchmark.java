@@ -0,0 +1,118 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.model.Period;
+import com.reddot.api.service.CycleStats;
+import com.reddot.api.service.PeriodDates;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the cycle-length statistics behind a rule-based prediction plus the cycle consistency
+ * analytics, for histories of 10 to 10,000 periods.
+ *
+ * <p>{@code legacy} reproduces the old code: {@code calculateAverageCycleLength} and
+ * {@code checkIrregularity} in {@code PredictionService} and {@code getCycleConsistency} in
+ * {@code AnalyticsService}, each walking the periods with {@code ChronoUnit.DAYS.between} and the
+ * last one boxing lengths into a list. {@code kernel} converts the {@link PeriodDates}
+ * projection to epoch days once and computes everything with {@link CycleStats}.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.CycleStatsBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CycleStatsBenchmark {
+    
+    @Param({"10", "100", "1000", "10000"})
+    private int periodCount;
+    
+    private List<Period> periods;
+    private List<PeriodDates> dates;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        periods = new ArrayList<>(periodCount);
+        dates = new ArrayList<>(periodCount);
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < periodCount; i++) {
+            Period period = new Period();
+            period.setStartDate(day);
+            periods.add(period);
+            dates.add(new PeriodDates(day, null));
+            day = day.minusDays(random.nextInt(20) == 0 ? 60 : 25 + random.nextInt(8));
+        }
+    }
+    
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        int average = legacyAverageCycleLength(periods, 28);
+        blackhole.consume(average);
+        blackhole.consume(legacyIrregularity(periods, average));
+        
+        List<Integer> cycleLengths = new ArrayList<>();
+        for (int i = 0; i < periods.size() - 1; i++) {
+            long days = ChronoUnit.DAYS.between(periods.get(i + 1).getStartDate(), periods.get(i).getStartDate());
+            if (days > 0 && days < 45) {
+                cycleLengths.add((int) days);
+            }
+        }
+        double avg = cycleLengths.stream().mapToInt(Integer::intValue).average().orElse(28);
+        double variance = cycleLengths.stream()
+                .mapToDouble(length -> Math.pow(length - avg, 2))
+                .average().orElse(0);
+        blackhole.consume(Math.sqrt(variance));
+        blackhole.consume(cycleLengths);
+    }
+    
+    @Benchmark
+    public void kernel(Blackhole blackhole) {
+        CycleStats stats = CycleStats.of(CycleStats.startDays(dates), 28);
+        blackhole.consume(stats.averageCycleLength());
+        blackhole.consume(stats.isIrregular());
+        blackhole.consume(stats.standardDeviation());
+        blackhole.consume(stats.validLengths());
+    }
+    
+    private static int legacyAverageCycleLength(List<Period> periods, Integer userAverage) {
+        int totalDays = 0;
+        int count = 0;
+        for (int i = 0; i < periods.size() - 1; i++) {
+            long days = ChronoUnit.DAYS.between(periods.get(i + 1).getStartDate(), periods.get(i).getStartDate());
+            if (days > 0 && days < 45) {
+                totalDays += (int) days;
+                count++;
+            }
+        }
+        return count > 0 ? (totalDays / count + userAverage) / 2 : userAverage;
+    }
+    
+    private static boolean legacyIrregularity(List<Period> periods, int avgCycleLength) {
+        int variance = 0;
+        for (int i = 0; i < periods.size() - 1; i++) {
+            int cycleLength = (int) ChronoUnit.DAYS.between(periods.get(i + 1).getStartDate(), periods.get(i).getStartDate());
+            variance += Math.abs(cycleLength - avgCycleLength);
+        }
+        return variance / Math.max(1, periods.size() - 1) > 7;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CycleStatsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
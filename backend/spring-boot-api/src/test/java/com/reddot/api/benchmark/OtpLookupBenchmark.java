@@ -0,0 +1,104 @@
+package com.reddot.api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTP verification lookup against {@code otp_tokens} as it grows with historical rows.
+ *
+ * <p>The table is created with the same shape and indexes as {@code OtpToken} in an in-memory H2
+ * database and filled with {@code historicalRows} expired tokens before measuring. {@code verify}
+ * is the {@code findByEmailAndType} + attempts update done by {@code OtpService.verify}; its
+ * latency should not move between the small and the multi-million row table.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.OtpLookupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class OtpLookupBenchmark {
+    
+    @Param({"10000", "3000000"})
+    private int historicalRows;
+    
+    private Connection connection;
+    private PreparedStatement find;
+    private PreparedStatement claimAttempt;
+    
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:otp;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS otp_tokens");
+            ddl.execute("CREATE TABLE otp_tokens (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, email VARCHAR(255) NOT NULL, " +
+                        "otp VARCHAR(64) NOT NULL, type VARCHAR(32) NOT NULL, expiry_time TIMESTAMP NOT NULL, " +
+                        "attempts INT, used BOOLEAN, created_at TIMESTAMP, " +
+                        "CONSTRAINT uk_otp_tokens_email_type UNIQUE (email, type))");
+            ddl.execute("CREATE INDEX idx_otp_tokens_expiry_time ON otp_tokens (expiry_time)");
+            ddl.execute("INSERT INTO otp_tokens (email, otp, type, expiry_time, attempts, used, created_at) " +
+                        "SELECT 'user' || X || '@example.com', RPAD('a', 64, 'b'), 'PASSWORD_RESET', " +
+                        "DATEADD('DAY', -1 - MOD(X, 90), CURRENT_TIMESTAMP), MOD(X, 3), MOD(X, 2) = 0, " +
+                        "DATEADD('DAY', -1 - MOD(X, 90), CURRENT_TIMESTAMP) " +
+                        "FROM SYSTEM_RANGE(1, " + historicalRows + ")");
+        }
+        
+        find = connection.prepareStatement(
+            "SELECT id, otp, expiry_time, attempts, used FROM otp_tokens WHERE email = ? AND type = ?");
+        claimAttempt = connection.prepareStatement(
+            "UPDATE otp_tokens SET attempts = attempts + 1 WHERE email = ? AND type = ? AND attempts < ?");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE otp_tokens");
+        }
+        connection.close();
+    }
+    
+    @Benchmark
+    public int verify() throws SQLException {
+        int row = ThreadLocalRandom.current().nextInt(1, historicalRows + 1);
+        find.setString(1, "user" + row + "@example.com");
+        find.setString(2, "PASSWORD_RESET");
+        try (ResultSet rs = find.executeQuery()) {
+            if (!rs.next()) {
+                return 0;
+            }
+            claimAttempt.setString(1, "user" + row + "@example.com");
+            claimAttempt.setString(2, "PASSWORD_RESET");
+            claimAttempt.setInt(3, 5);
+            return claimAttempt.executeUpdate();
+        }
+    }
+    
+    @Benchmark
+    public boolean verifyUnknownEmail() throws SQLException {
+        find.setString(1, "nobody" + ThreadLocalRandom.current().nextInt() + "@example.com");
+        find.setString(2, "PASSWORD_RESET");
+        try (ResultSet rs = find.executeQuery()) {
+            return rs.next();
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OtpLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
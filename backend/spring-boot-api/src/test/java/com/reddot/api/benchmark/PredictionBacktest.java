@@ -0,0 +1,177 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.benchmark.BacktestHistories.History;
+import com.reddot.api.benchmark.PredictionStrategies.Strategy;
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.service.PeriodDates;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays period histories through each prediction strategy with the most recent period held out,
+ * and reports how far off the predicted start was and whether the stated confidence means anything.
+ *
+ * <ul>
+ *   <li>error: predicted minus actual start in days (positive = predicted too late)</li>
+ *   <li>hit: within {@value #HIT_TOLERANCE_DAYS} days; calibration compares each confidence band's
+ *       mean confidence with its hit rate, and the Brier score summarises it (lower is better)</li>
+ *   <li>cost: wall-clock predictions per second and bytes allocated per prediction on the calling
+ *       thread (the stand-in's server side is not counted); use {@link PredictionStrategyBenchmark}
+ *       for steady-state numbers</li>
+ * </ul>
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.PredictionBacktest [-Dexec.args=export.json]}; without an
+ * argument it replays synthetic histories plus the parity fixtures.
+ */
+public final class PredictionBacktest {
+    
+    public static final int HIT_TOLERANCE_DAYS = 2;
+    public static final int HISTORY_LIMIT = 24;
+    
+    private static final double[] CONFIDENCE_BANDS = {0.0, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0001};
+    
+    public record CalibrationBand(double from, double to, int count, double meanConfidence, double hitRate) {
+    }
+    
+    public record Report(
+        Strategy strategy,
+        int predictions,
+        int failures,
+        double meanAbsoluteError,
+        double bias,
+        double rootMeanSquaredError,
+        int p90AbsoluteError,
+        double hitRate,
+        double brierScore,
+        List<CalibrationBand> calibration,
+        double predictionsPerSecond,
+        long bytesPerPrediction
+    ) {
+    }
+    
+    private PredictionBacktest() {
+    }
+    
+    public static Report run(PredictionStrategies strategies, Strategy strategy, List<History> histories) {
+        List<Integer> errors = new ArrayList<>();
+        List<Double> confidences = new ArrayList<>();
+        int failures = 0;
+        
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < histories.size(); i++) {
+            History history = histories.get(i);
+            List<PeriodDates> periods = history.periods();
+            if (periods.size() < 4) {
+                continue; // the engine needs three periods after the hold-out
+            }
+            List<PeriodDates> training = periods.subList(1, Math.min(periods.size(), HISTORY_LIMIT + 1));
+            try {
+                CyclePredictionDto prediction = strategies.predict(strategy,
+                    PredictionStrategies.user(i, history.averageCycleLength()), training);
+                errors.add((int) ChronoUnit.DAYS.between(periods.get(0).startDate(), prediction.getPredictedPeriodStart()));
+                confidences.add(prediction.getPredictionConfidence());
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        
+        int n = errors.size();
+        int attempts = n + failures;
+        long absoluteSum = 0;
+        long sum = 0;
+        long squaredSum = 0;
+        int hits = 0;
+        double brier = 0;
+        int[] absolute = new int[n];
+        for (int i = 0; i < n; i++) {
+            int error = errors.get(i);
+            absolute[i] = Math.abs(error);
+            absoluteSum += absolute[i];
+            sum += error;
+            squaredSum += (long) error * error;
+            boolean hit = absolute[i] <= HIT_TOLERANCE_DAYS;
+            hits += hit ? 1 : 0;
+            double miss = confidences.get(i) - (hit ? 1 : 0);
+            brier += miss * miss;
+        }
+        Arrays.sort(absolute);
+        
+        return new Report(
+            strategy,
+            n,
+            failures,
+            n > 0 ? (double) absoluteSum / n : 0,
+            n > 0 ? (double) sum / n : 0,
+            n > 0 ? Math.sqrt((double) squaredSum / n) : 0,
+            n > 0 ? absolute[Math.min(n - 1, (int) Math.ceil(n * 0.9) - 1)] : 0,
+            n > 0 ? (double) hits / n : 0,
+            n > 0 ? brier / n : 0,
+            calibration(errors, confidences),
+            attempts / (elapsed / 1e9),
+            attempts > 0 ? allocated / attempts : 0
+        );
+    }
+    
+    private static List<CalibrationBand> calibration(List<Integer> errors, List<Double> confidences) {
+        List<CalibrationBand> bands = new ArrayList<>();
+        for (int b = 0; b < CONFIDENCE_BANDS.length - 1; b++) {
+            double from = CONFIDENCE_BANDS[b];
+            double to = CONFIDENCE_BANDS[b + 1];
+            int count = 0;
+            int hits = 0;
+            double confidenceSum = 0;
+            for (int i = 0; i < errors.size(); i++) {
+                double confidence = confidences.get(i);
+                if (confidence >= from && confidence < to) {
+                    count++;
+                    confidenceSum += confidence;
+                    hits += Math.abs(errors.get(i)) <= HIT_TOLERANCE_DAYS ? 1 : 0;
+                }
+            }
+            if (count > 0) {
+                bands.add(new CalibrationBand(from, Math.min(to, 1.0), count, confidenceSum / count, (double) hits / count));
+            }
+        }
+        return bands;
+    }
+    
+    static String format(Report report) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-10s n=%d failures=%d MAE=%.2fd bias=%+.2fd RMSE=%.2fd P90=%dd hit(+/-%dd)=%.1f%% Brier=%.3f %.0f/s %dB/prediction%n",
+            report.strategy(), report.predictions(), report.failures(), report.meanAbsoluteError(), report.bias(),
+            report.rootMeanSquaredError(), report.p90AbsoluteError(), HIT_TOLERANCE_DAYS, report.hitRate() * 100,
+            report.brierScore(), report.predictionsPerSecond(), report.bytesPerPrediction()));
+        for (CalibrationBand band : report.calibration()) {
+            out.append(String.format("    confidence %.1f-%.1f: n=%d mean confidence=%.2f hit rate=%.2f%n",
+                band.from(), band.to(), band.count(), band.meanConfidence(), band.hitRate()));
+        }
+        return out.toString();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        List<History> histories = new ArrayList<>();
+        if (args.length > 0) {
+            histories.addAll(BacktestHistories.load(Path.of(args[0])));
+        } else {
+            histories.addAll(BacktestHistories.synthetic(5000, 20240611L));
+            histories.addAll(BacktestHistories.fixtures());
+        }
+        
+        try (PredictionStrategies strategies = new PredictionStrategies()) {
+            for (Strategy strategy : Strategy.values()) {
+                run(strategies, strategy, histories); // warm-up
+                System.out.print(format(run(strategies, strategy, histories)));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.benchmark.BacktestHistories.History;
+import com.reddot.api.benchmark.PredictionBacktest.Report;
+import com.reddot.api.benchmark.PredictionStrategies.Strategy;
+import com.reddot.api.service.PeriodDates;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keeps the backtest runnable offline: every strategy answers every held-out history, and the
+ * remote strategy through the stand-in gives exactly the in-process engine's predictions.
+ */
+class PredictionBacktestTest {
+    
+    private static PredictionStrategies strategies;
+    private static List<History> histories;
+    
+    @BeforeAll
+    static void setUp() throws Exception {
+        strategies = new PredictionStrategies();
+        histories = new ArrayList<>(BacktestHistories.synthetic(300, 7L));
+        histories.addAll(BacktestHistories.fixtures());
+    }
+    
+    @AfterAll
+    static void tearDown() {
+        strategies.close();
+    }
+    
+    @Test
+    void everyStrategyProducesAFiniteReport() {
+        for (Strategy strategy : Strategy.values()) {
+            Report report = PredictionBacktest.run(strategies, strategy, histories);
+            
+            assertThat(report.failures()).as(strategy.name()).isZero();
+            assertThat(report.predictions()).as(strategy.name()).isGreaterThan(300);
+            assertThat(report.meanAbsoluteError()).isFinite().isGreaterThanOrEqualTo(0);
+            assertThat(report.rootMeanSquaredError()).isFinite().isGreaterThanOrEqualTo(report.meanAbsoluteError());
+            assertThat(report.brierScore()).isBetween(0.0, 1.0);
+            assertThat(report.calibration()).isNotEmpty();
+            assertThat(report.calibration().stream().mapToInt(PredictionBacktest.CalibrationBand::count).sum())
+                    .isEqualTo(report.predictions());
+        }
+    }
+    
+    @Test
+    void remoteStandInMatchesLocalEngine() {
+        for (int i = 0; i < histories.size(); i++) {
+            History history = histories.get(i);
+            List<PeriodDates> periods = history.periods().subList(1, history.periods().size());
+            if (periods.size() < 3) {
+                continue;
+            }
+            var user = PredictionStrategies.user(i, history.averageCycleLength());
+            
+            assertThat(strategies.predict(Strategy.REMOTE, user, periods))
+                    .usingRecursiveComparison()
+                    .isEqualTo(strategies.predict(Strategy.LOCAL, user, periods));
+        }
+    }
+}
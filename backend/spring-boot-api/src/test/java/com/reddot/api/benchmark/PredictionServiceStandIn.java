@@ -0,0 +1,125 @@
+package com.reddot.api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.service.CycleHistory;
+import com.reddot.api.service.LocalCyclePredictor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Offline stand-in for {@code backend/prediction-service}: serves {@code POST /predict} and
+ * {@code POST /predict/batch} on a loopback port with the same JSON shapes, answering with
+ * {@link LocalCyclePredictor}, which {@code LocalCyclePredictorParityTest} keeps identical to
+ * main.py. Lets the remote strategy be benchmarked in CI without Python.
+ */
+public class PredictionServiceStandIn implements AutoCloseable {
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LocalCyclePredictor predictor = new LocalCyclePredictor();
+    private final HttpServer server;
+    private final ExecutorService threads;
+    
+    public PredictionServiceStandIn() throws IOException {
+        // Headers and body go out as separate writes; without this, delayed ACKs add ~40ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/predict/batch", exchange -> handle(exchange, this::predictBatch));
+        server.createContext("/predict", exchange -> handle(exchange, this::predictOne));
+        threads = Executors.newFixedThreadPool(8);
+        server.setExecutor(threads);
+        server.start();
+    }
+    
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.shutdownNow();
+    }
+    
+    private Object predictOne(JsonNode request) {
+        return toResponse(predictor.predict(toHistory(request)));
+    }
+    
+    private Object predictBatch(JsonNode request) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (JsonNode item : request.get("requests")) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("user_id", item.get("user_id").asLong());
+            try {
+                result.put("prediction", predictOne(item));
+            } catch (RuntimeException e) {
+                result.put("error", "Prediction error: " + e.getMessage());
+            }
+            results.add(result);
+        }
+        return Map.of("results", results);
+    }
+    
+    private static CycleHistory toHistory(JsonNode request) {
+        JsonNode periods = request.get("periods");
+        int[] startDays = new int[periods.size()];
+        for (int i = 0; i < startDays.length; i++) {
+            startDays[i] = (int) LocalDate.parse(periods.get(i).get("start_date").asText()).toEpochDay();
+        }
+        // main.py sorts most recent first
+        Arrays.sort(startDays);
+        for (int i = 0, j = startDays.length - 1; i < j; i++, j--) {
+            int swap = startDays[i];
+            startDays[i] = startDays[j];
+            startDays[j] = swap;
+        }
+        JsonNode average = request.get("average_cycle_length");
+        JsonNode periodLength = request.get("average_period_length");
+        return new CycleHistory(request.get("user_id").asLong(), startDays,
+            average == null || average.isNull() ? null : average.asInt(),
+            periodLength == null || periodLength.isNull() ? null : periodLength.asInt());
+    }
+    
+    private static Map<String, Object> toResponse(CyclePredictionDto dto) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("predicted_period_start", dto.getPredictedPeriodStart().toString());
+        response.put("predicted_ovulation_date", dto.getPredictedOvulationDate().toString());
+        response.put("fertile_window_start", dto.getFertileWindowStart().toString());
+        response.put("fertile_window_end", dto.getFertileWindowEnd().toString());
+        response.put("confidence", dto.getPredictionConfidence());
+        response.put("explanation", dto.getExplanation());
+        response.put("is_irregular", dto.getIsIrregular());
+        response.put("estimated_cycle_length", dto.getEstimatedCycleLength());
+        return response;
+    }
+    
+    private void handle(HttpExchange exchange, Function<JsonNode, Object> handler) throws IOException {
+        int status = 200;
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(handler.apply(mapper.readTree(exchange.getRequestBody())));
+        } catch (RuntimeException e) {
+            status = 500;
+            body = mapper.writeValueAsBytes(Map.of("detail", "Prediction error: " + e.getMessage()));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
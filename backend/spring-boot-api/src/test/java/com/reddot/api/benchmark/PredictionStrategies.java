@@ -0,0 +1,87 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.config.RestTemplateConfig;
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.service.BayesianCyclePredictor;
+import com.reddot.api.service.CycleHistory;
+import com.reddot.api.service.LocalCyclePredictor;
+import com.reddot.api.service.PeriodDates;
+import com.reddot.api.service.PopulationPriors;
+import com.reddot.api.service.PredictionService;
+import com.reddot.api.service.RemoteCyclePredictor;
+import com.reddot.api.service.UserSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The prediction strategies of {@link PredictionService}, wired without Spring: the rule-based
+ * floor, the in-process engine, the remote engine talking HTTP to a
+ * {@link PredictionServiceStandIn} and the Bayesian model (folded from the history here).
+ */
+public class PredictionStrategies implements AutoCloseable {
+    
+    public enum Strategy {
+        RULE_BASED, LOCAL, REMOTE, BAYESIAN
+    }
+    
+    private final PredictionServiceStandIn standIn;
+    private final PredictionService predictionService;
+    private final LocalCyclePredictor localPredictor;
+    private final RemoteCyclePredictor remotePredictor;
+    private final BayesianCyclePredictor bayesianPredictor = new BayesianCyclePredictor();
+    
+    public PredictionStrategies() throws IOException {
+        standIn = new PredictionServiceStandIn();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        
+        predictionService = new PredictionService();
+        ReflectionTestUtils.setField(predictionService, "populationPriors", new PopulationPriors());
+        localPredictor = new LocalCyclePredictor();
+        
+        RestTemplateConfig config = new RestTemplateConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 50);
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(config, "readTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(config, "connectionRequestTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(config, "idleTimeout", Duration.ofSeconds(30));
+        
+        remotePredictor = new RemoteCyclePredictor();
+        ReflectionTestUtils.setField(remotePredictor, "restTemplate", config.restTemplate());
+        ReflectionTestUtils.setField(remotePredictor, "meterRegistry", registry);
+        ReflectionTestUtils.setField(remotePredictor, "predictionServiceUrl", standIn.getUrl());
+        ReflectionTestUtils.setField(remotePredictor, "maxConcurrentCalls", 50);
+        ReflectionTestUtils.setField(remotePredictor, "windowSize", 20);
+        ReflectionTestUtils.setField(remotePredictor, "minimumCalls", 10);
+        ReflectionTestUtils.setField(remotePredictor, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(remotePredictor, "openDuration", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(remotePredictor, "halfOpenCalls", 3);
+        remotePredictor.init();
+    }
+    
+    /**
+     * @param periods most recent first
+     */
+    public CyclePredictionDto predict(Strategy strategy, UserSnapshot user, List<PeriodDates> periods) {
+        return switch (strategy) {
+            case RULE_BASED -> predictionService.getRuleBasedPrediction(user, periods);
+            case LOCAL -> localPredictor.predict(CycleHistory.of(user, periods));
+            case REMOTE -> remotePredictor.predict(CycleHistory.of(user, periods));
+            case BAYESIAN -> bayesianPredictor.predict(CycleHistory.of(user, periods));
+        };
+    }
+    
+    public static UserSnapshot user(long id, Integer averageCycleLength) {
+        return new UserSnapshot(id, "backtest-" + id + "@example.com", "Back", "Test", null, null, null, null,
+            averageCycleLength, 5, null, Set.of(), null, null, true, false, true, null, true, true, 0, null);
+    }
+    
+    @Override
+    public void close() {
+        standIn.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.benchmark.BacktestHistories.History;
+import com.reddot.api.benchmark.PredictionStrategies.Strategy;
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.service.PeriodDates;
+import com.reddot.api.service.UserSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-prediction cost of each {@link com.reddot.api.service.PredictionService} strategy over
+ * synthetic histories trimmed to {@code historySize} periods. {@code REMOTE} includes the HTTP
+ * round trip to a loopback {@link PredictionServiceStandIn}, so it measures the client and
+ * transport overhead on top of {@code LOCAL}, not the Python service itself; it needs the longer
+ * warm-up before the HTTP client and Jackson paths are compiled.
+ *
+ * <p>Allocation per prediction is reported by the GC profiler as {@code gc.alloc.rate.norm}.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.PredictionStrategyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictionStrategyBenchmark {
+    
+    @Param({"RULE_BASED", "LOCAL", "REMOTE", "BAYESIAN"})
+    private Strategy strategy;
+    
+    @Param({"3", "12", "24"})
+    private int historySize;
+    
+    private PredictionStrategies strategies;
+    private final List<UserSnapshot> users = new ArrayList<>();
+    private final List<List<PeriodDates>> periods = new ArrayList<>();
+    private int next;
+    
+    @Setup
+    public void setup() throws IOException {
+        strategies = new PredictionStrategies();
+        List<History> histories = BacktestHistories.synthetic(4096, 42L);
+        for (int i = 0; i < histories.size(); i++) {
+            History history = histories.get(i);
+            users.add(PredictionStrategies.user(i, history.averageCycleLength()));
+            periods.add(history.periods().subList(0, Math.min(historySize, history.periods().size())));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        strategies.close();
+    }
+    
+    @Benchmark
+    public CyclePredictionDto predict() {
+        int i = next++ & (users.size() - 1);
+        return strategies.predict(strategy, users.get(i), periods.get(i));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PredictionStrategyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
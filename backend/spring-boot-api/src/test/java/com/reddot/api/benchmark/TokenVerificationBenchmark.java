@@ -0,0 +1,77 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.model.User;
+import com.reddot.api.security.JwtTokenProvider;
+import com.reddot.api.security.TokenClaims;
+import com.reddot.api.security.UserPrincipal;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of verifying an access token.
+ *
+ * <p>{@code legacy} reproduces the old filter path: a new HMAC key and a new parser for
+ * {@code validateToken}, then again for {@code getUsernameFromToken}. {@code verifyOnce} is the
+ * current {@link JwtTokenProvider#verify(String)} path with a cached key and parser.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.TokenVerificationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenVerificationBenchmark {
+    
+    private static final String SECRET = "benchmark-secret-key-minimum-32-characters-long";
+    
+    private JwtTokenProvider tokenProvider;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpiration", 86400000L);
+        ReflectionTestUtils.setField(tokenProvider, "refreshExpiration", 604800000L);
+        tokenProvider.init();
+        
+        UserPrincipal principal = new UserPrincipal(42L, "bench@example.com", null, User.Role.USER, 0, true);
+        token = tokenProvider.generateToken(principal, "benchmark-session");
+    }
+    
+    @Benchmark
+    public String legacy() {
+        Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token);
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+    
+    @Benchmark
+    public TokenClaims verifyOnce() {
+        return tokenProvider.verify(token).orElseThrow();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
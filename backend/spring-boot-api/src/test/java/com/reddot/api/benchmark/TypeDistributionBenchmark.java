@@ -0,0 +1,119 @@
+package com.reddot.api.benchmark;
+
+import com.reddot.api.RedDotApplication;
+import com.reddot.api.model.Mood;
+import com.reddot.api.model.Symptom;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.MoodRepository;
+import com.reddot.api.repository.SymptomRepository;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.service.MoodTypeCount;
+import com.reddot.api.service.SymptomTypeCount;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The symptom and mood distributions of {@code AnalyticsService} for one user with
+ * {@code rows} symptoms and as many moods, each with a 200-character note, through the real
+ * repositories against in-memory H2.
+ *
+ * <p>{@code *Entities} is the old code: load every entity with {@code findByUserOrderByDateDesc} and
+ * count with {@code Collectors.groupingBy}. {@code *Grouped} is {@code countByType}, which returns
+ * one {@link SymptomTypeCount} or {@link MoodTypeCount} per type. Memory per call is the GC
+ * profiler's {@code gc.alloc.rate.norm}; H2 runs in the same JVM, so it includes the database side
+ * too and Postgres would only shrink the grouped numbers further.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.reddot.api.benchmark.TypeDistributionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TypeDistributionBenchmark {
+    
+    @Param({"10000", "50000"})
+    private int rows;
+    
+    private ConfigurableApplicationContext context;
+    private SymptomRepository symptomRepository;
+    private MoodRepository moodRepository;
+    private User user;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        // Command-line arguments, so they win over application.yml
+        context = new SpringApplicationBuilder(RedDotApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(
+                    "--spring.jpa.show-sql=false",
+                    "--logging.level.root=WARN");
+        symptomRepository = context.getBean(SymptomRepository.class);
+        moodRepository = context.getBean(MoodRepository.class);
+        
+        User owner = new User();
+        owner.setEmail("distribution@example.com");
+        owner.setPassword("x");
+        owner.setFirstName("Jane");
+        owner.setLastName("Doe");
+        user = context.getBean(UserRepository.class).save(owner);
+        
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO symptoms (user_id, date, symptom_type, severity, notes, created_at) " +
+                    "SELECT ?, DATEADD('DAY', -MOD(n, 1500), CURRENT_DATE), 'SYMPTOM_' || MOD(n, 12), 1 + MOD(n, 5), " +
+                    "RPAD('note', 200, 'x'), CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?) AS r(n)", user.getId(), rows);
+        jdbc.update("INSERT INTO moods (user_id, date, mood_type, intensity, notes, created_at) " +
+                    "SELECT ?, DATEADD('DAY', -MOD(n, 1500), CURRENT_DATE), " +
+                    "CASE MOD(n, 4) WHEN 0 THEN 'HAPPY' WHEN 1 THEN 'CALM' WHEN 2 THEN 'TIRED' ELSE 'ANXIOUS' END, " +
+                    "1 + MOD(n, 5), RPAD('note', 200, 'x'), CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?) AS r(n)", user.getId(), rows);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Map<String, Long> symptomsEntities() {
+        List<Symptom> symptoms = symptomRepository.findByUserOrderByDateDesc(user);
+        return symptoms.stream().collect(Collectors.groupingBy(Symptom::getSymptomType, Collectors.counting()));
+    }
+    
+    @Benchmark
+    public List<SymptomTypeCount> symptomsGrouped() {
+        return symptomRepository.countByType(user, null, null);
+    }
+    
+    @Benchmark
+    public Map<String, Long> moodsEntities() {
+        List<Mood> moods = moodRepository.findByUserOrderByDateDesc(user);
+        return moods.stream().collect(Collectors.groupingBy(m -> m.getMoodType().name(), Collectors.counting()));
+    }
+    
+    @Benchmark
+    public List<MoodTypeCount> moodsGrouped() {
+        return moodRepository.countByType(user, null, null);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TypeDistributionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
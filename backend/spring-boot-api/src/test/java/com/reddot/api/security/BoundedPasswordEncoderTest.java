@@ -0,0 +1,66 @@
+package com.reddot.api.security;
+
+import com.reddot.api.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedPasswordEncoderTest {
+    
+    @Test
+    public void testFailsFastWhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+            
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, 1, 1, Duration.ofSeconds(10), 3, registry);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> encoder.encode("first"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            callers.submit(() -> encoder.encode("queued"));
+            
+            long deadline = System.currentTimeMillis() + 5000;
+            while (registry.get("auth.password.queue.depth").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            
+            assertThatThrownBy(() -> encoder.encode("rejected"))
+                .isInstanceOf(ServiceBusyException.class)
+                .satisfies(ex -> assertThat(((ServiceBusyException) ex).getRetryAfterSeconds()).isEqualTo(3));
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+            encoder.destroy();
+        }
+        
+        assertThat(registry.get("auth.password.hash").tag("operation", "encode").timer().count()).isEqualTo(2);
+    }
+}
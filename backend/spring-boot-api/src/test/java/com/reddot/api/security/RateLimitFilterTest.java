@@ -0,0 +1,86 @@
+package com.reddot.api.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTest {
+    
+    private RateLimitFilter filter;
+    private SimpleMeterRegistry registry;
+    
+    @BeforeEach
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Endpoint login = new RateLimitProperties.Endpoint();
+        login.setPath("/api/auth/login");
+        login.setPerIp(limit(3, Duration.ofMinutes(1)));
+        login.setPerEmail(limit(2, Duration.ofMinutes(1)));
+        properties.getEndpoints().put("login", login);
+        
+        registry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "rateLimiter", new RateLimiter(properties, registry));
+        ReflectionTestUtils.setField(filter, "properties", properties);
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "meterRegistry", registry);
+        filter.init();
+    }
+    
+    @Test
+    public void testLimitsPerEmailAcrossAddresses() throws Exception {
+        assertThat(login("10.0.0.1", "Alice@example.com").getStatus()).isEqualTo(200);
+        assertThat(login("10.0.0.2", "alice@example.com").getStatus()).isEqualTo(200);
+        
+        MockHttpServletResponse rejected = login("10.0.0.3", "alice@example.com");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("30");
+        assertThat(registry.get("auth.ratelimit.rejected").tag("key", "email").counter().count()).isEqualTo(1);
+        
+        assertThat(login("10.0.0.3", "bob@example.com").getStatus()).isEqualTo(200);
+    }
+    
+    @Test
+    public void testLimitsPerAddressAndPassesBodyThrough() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("10.0.0.9", "user" + i + "@example.com"), new MockHttpServletResponse(), chain);
+            String body = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(body).contains("user" + i + "@example.com");
+        }
+        
+        assertThat(login("10.0.0.9", "someone@example.com").getStatus()).isEqualTo(429);
+        assertThat(registry.get("auth.ratelimit.rejected").tag("key", "ip").counter().count()).isEqualTo(1);
+    }
+    
+    private MockHttpServletResponse login(String address, String email) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(address, email), response, new MockFilterChain());
+        return response;
+    }
+    
+    private static MockHttpServletRequest request(String address, String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(address);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"secret\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+    
+    private static RateLimitProperties.Limit limit(int capacity, Duration period) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setPeriod(period);
+        return limit;
+    }
+}
@@ -0,0 +1,146 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.Mood;
+import com.reddot.api.model.Period;
+import com.reddot.api.model.Symptom;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.MoodRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.SymptomRepository;
+import com.reddot.api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class AnalyticsRollupTest {
+    
+    private static final LocalDate FIRST = LocalDate.of(2023, 1, 1);
+    
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private SymptomRepository symptomRepository;
+    
+    @Autowired
+    private MoodRepository moodRepository;
+    
+    @Test
+    public void testRunningStatsRemoveUndoesAdd() {
+        RunningStats stats = RunningStats.EMPTY;
+        for (int length : new int[] {28, 31, 26, 29, 35}) {
+            stats = stats.add(length);
+        }
+        assertThat(stats.mean()).isCloseTo(29.8, within(1e-9));
+        assertThat(stats.variance()).isCloseTo(9.36, within(1e-9)); // population, like CycleStats
+        
+        stats = stats.remove(35).remove(26);
+        assertThat(stats.count()).isEqualTo(3);
+        assertThat(stats.mean()).isCloseTo(88 / 3.0, within(1e-9));
+        assertThat(stats.m2()).isCloseTo(4.6667, within(1e-4));
+        assertThat(stats.remove(28).remove(31).remove(29)).isEqualTo(RunningStats.EMPTY);
+    }
+    
+    @Test
+    public void testIncrementalUpdatesMatchRebuild() {
+        User user = user("rollup@example.com");
+        Long userId = user.getId();
+        
+        symptom(user, "CRAMPS", 4); // no rollup yet: built from the history
+        assertThat(analyticsRollupService.read(userId).symptomCount()).isEqualTo(1);
+        symptom(user, "CRAMPS", null);
+        symptom(user, "HEADACHE", 2);
+        mood(user, Mood.MoodType.CALM, 3);
+        mood(user, null, 5);
+        
+        // Appends, out-of-order inserts, same-day duplicates, skipped months, moves and deletes
+        Random random = new Random(7);
+        List<Period> periods = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int action = periods.size() < 3 ? 0 : random.nextInt(4);
+            if (action <= 1) {
+                Period period = new Period();
+                period.setUser(user);
+                period.setStartDate(FIRST.plusDays(random.nextInt(700)));
+                period = periodRepository.save(period);
+                analyticsRollupService.periodAdded(userId, period.getId(), period.getStartDate());
+                periods.add(period);
+            } else if (action == 2) {
+                int index = random.nextInt(periods.size());
+                Period period = periods.get(index);
+                LocalDate from = period.getStartDate();
+                period.setStartDate(from.plusDays(random.nextInt(61) - 30));
+                period = periodRepository.save(period);
+                periods.set(index, period);
+                analyticsRollupService.periodMoved(userId, period.getId(), from, period.getStartDate());
+            } else {
+                Period period = periods.remove(random.nextInt(periods.size()));
+                periodRepository.delete(period);
+                analyticsRollupService.periodRemoved(userId, period.getId(), period.getStartDate());
+            }
+        }
+        
+        AnalyticsRollupService.Rollup rollup = analyticsRollupService.read(userId);
+        assertThat(rollup.symptomCount()).isEqualTo(3);
+        assertThat(rollup.symptoms()).containsExactlyInAnyOrder(
+            new SymptomTypeCount("CRAMPS", 2L, 4.0), new SymptomTypeCount("HEADACHE", 1L, 2.0));
+        assertThat(rollup.moods()).containsExactlyInAnyOrder(
+            new MoodTypeCount(Mood.MoodType.CALM, 1L, 3.0, 1L), new MoodTypeCount(null, 1L, 5.0, 1L));
+        assertThat(rollup.periodCount()).isEqualTo(periods.size());
+        
+        CycleStats stats = CycleStats.of(CycleStats.startDays(
+            periodRepository.findDatesByUser(user, Pageable.unpaged())), null);
+        assertThat(rollup.cycleLengths().count()).isEqualTo(stats.validCount());
+        assertThat(rollup.cycleLengths().mean()).isCloseTo(stats.mean(), within(1e-9));
+        assertThat(rollup.cycleLengths().variance()).isCloseTo(stats.variance(), within(1e-9));
+        
+        assertThat(analyticsRollupService.rebuild(userId)).isFalse(); // nothing drifted
+    }
+    
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        return userRepository.save(user);
+    }
+    
+    private void symptom(User user, String type, Integer severity) {
+        Symptom symptom = new Symptom();
+        symptom.setUser(user);
+        symptom.setDate(FIRST);
+        symptom.setSymptomType(type);
+        symptom.setSeverity(severity);
+        symptomRepository.save(symptom);
+        analyticsRollupService.symptomLogged(user.getId(), type, severity);
+    }
+    
+    private void mood(User user, Mood.MoodType type, Integer intensity) {
+        Mood mood = new Mood();
+        mood.setUser(user);
+        mood.setDate(FIRST);
+        mood.setMoodType(type);
+        mood.setIntensity(intensity);
+        moodRepository.save(mood);
+        analyticsRollupService.moodLogged(user.getId(), type, intensity);
+    }
+}
@@ -0,0 +1,103 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class BayesianCyclePredictorTest {
+    
+    private final BayesianCyclePredictor predictor = new BayesianCyclePredictor();
+    
+    @Test
+    public void testStudentDistribution() {
+        assertThat(CycleLengthPosterior.studentCdf(1.0, 1)).isCloseTo(0.75, within(1e-9));
+        assertThat(CycleLengthPosterior.studentCdf(2.0, 10)).isCloseTo(0.963306, within(1e-6));
+        assertThat(CycleLengthPosterior.studentCdf(-1.697, 30)).isCloseTo(0.05, within(1e-4));
+        assertThat(CycleLengthPosterior.studentCdf(0, 7)).isCloseTo(0.5, within(1e-12));
+    }
+    
+    @Test
+    public void testAppendingMatchesRebuilding() {
+        Random random = new Random(11);
+        for (int run = 0; run < 500; run++) {
+            int[] startDays = new int[1 + random.nextInt(30)];
+            int day = 20000;
+            for (int i = startDays.length - 1; i >= 0; i--) {
+                startDays[i] = day;
+                day += random.nextInt(8) == 0 ? random.nextInt(80) : 22 + random.nextInt(14);
+            }
+            
+            CycleModel appended = CycleModel.EMPTY;
+            for (int i = startDays.length - 1; i >= 0; i--) {
+                LocalDate start = LocalDate.ofEpochDay(startDays[i]);
+                assertThat(appended.canAppend(start)).isTrue();
+                appended = appended.append(start);
+            }
+            
+            assertThat(appended).isEqualTo(CycleModel.of(startDays));
+        }
+    }
+    
+    @Test
+    public void testIntervalNarrowsWithRegularHistory() {
+        CyclePredictionDto few = predictor.predict(history(29, 0, 3, new Random(1)));
+        CyclePredictionDto many = predictor.predict(history(29, 0, 15, new Random(1)));
+        CyclePredictionDto irregular = predictor.predict(history(29, 10, 15, new Random(1)));
+        
+        assertThat(many.getEstimatedCycleLength()).isEqualTo(29);
+        assertThat(width(many)).isLessThan(width(few));
+        assertThat(many.getPredictionConfidence()).isGreaterThan(few.getPredictionConfidence());
+        assertThat(width(irregular)).isGreaterThan(width(many));
+        assertThat(irregular.getPredictionConfidence()).isLessThan(many.getPredictionConfidence());
+        assertThat(many.getPredictedPeriodStartEarliest()).isBeforeOrEqualTo(many.getPredictedPeriodStart());
+        assertThat(many.getPredictedPeriodStartLatest()).isAfterOrEqualTo(many.getPredictedPeriodStart());
+    }
+    
+    @Test
+    public void testIntervalIsCalibrated() {
+        Random random = new Random(5);
+        int covered = 0;
+        int hits = 0;
+        double confidence = 0;
+        int runs = 4000;
+        for (int run = 0; run < runs; run++) {
+            int mean = 25 + random.nextInt(9);
+            int spread = 1 + random.nextInt(4);
+            CycleHistory history = history(mean, spread, 4 + random.nextInt(12), random);
+            CyclePredictionDto dto = predictor.predict(history);
+            LocalDate actual = LocalDate.ofEpochDay(history.startDays()[0] + sample(mean, spread, random));
+            
+            covered += !actual.isBefore(dto.getPredictedPeriodStartEarliest())
+                && !actual.isAfter(dto.getPredictedPeriodStartLatest()) ? 1 : 0;
+            hits += Math.abs(actual.toEpochDay() - dto.getPredictedPeriodStart().toEpochDay()) <= 2 ? 1 : 0;
+            confidence += dto.getPredictionConfidence();
+        }
+        
+        // Whole-day intervals round up, so coverage sits at or a little above 80%
+        assertThat((double) covered / runs).isBetween(0.78, 0.9);
+        assertThat((double) hits / runs).isCloseTo(confidence / runs, within(0.05));
+    }
+    
+    private static CycleHistory history(int mean, int spread, int periods, Random random) {
+        int[] startDays = new int[periods];
+        int day = 20000;
+        for (int i = periods - 1; i >= 0; i--) {
+            startDays[i] = day;
+            day += sample(mean, spread, random);
+        }
+        return new CycleHistory(1L, startDays, null, null);
+    }
+    
+    private static int sample(int mean, int spread, Random random) {
+        return (int) Math.round(mean + spread * random.nextGaussian());
+    }
+    
+    private static long width(CyclePredictionDto dto) {
+        return dto.getPredictedPeriodStartLatest().toEpochDay() - dto.getPredictedPeriodStartEarliest().toEpochDay();
+    }
+}
@@ -0,0 +1,243 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.model.Cycle;
+import com.reddot.api.model.Period;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.CycleRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "prediction.engine=local",
+    "prediction.history-limit=2"
+})
+@ActiveProfiles("test")
+public class CycleMaterializerTest {
+    
+    @Autowired
+    private CycleMaterializer cycleMaterializer;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private CycleRepository cycleRepository;
+    
+    @Autowired
+    private PredictionService predictionService;
+    
+    @Autowired
+    private CycleModelService cycleModelService;
+    
+    @Autowired
+    private PopulationPriors populationPriors;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Test
+    public void testMaterializeIsIncrementalAndFollowsDeletes() {
+        User user = user("cycles@example.com");
+        LocalDate first = LocalDate.now().minusDays(90);
+        period(user, first);
+        period(user, first.plusDays(29));
+        Period last = period(user, first.plusDays(57));
+        
+        assertThat(cycleMaterializer.materialize(user)).isEqualTo(3);
+        assertThat(cycleMaterializer.refreshPrediction(user.getId())).isTrue();
+        
+        List<Cycle> cycles = cycleRepository.findByUserOrderByCycleStartDateDesc(user);
+        assertThat(cycles).extracting(Cycle::getCycleLength).containsExactly(null, 28, 29);
+        assertThat(cycles).extracting(Cycle::getPeriodLength).containsExactly(5, 5, 5);
+        assertThat(cycles.get(0).getPredictedPeriodStart()).isNotNull();
+        assertThat(cycles.get(1).getCycleEndDate()).isEqualTo(first.plusDays(56));
+        
+        // Cycles cover the whole history, predictions only the most recent periods
+        assertThat(predictionService.recentPeriods(user))
+                .containsExactly(new PeriodDates(first.plusDays(57), first.plusDays(61)),
+                    new PeriodDates(first.plusDays(29), first.plusDays(33)));
+        
+        // Nothing changed, nothing written
+        assertThat(cycleMaterializer.materialize(user)).isZero();
+        assertThat(cycleMaterializer.refreshPrediction(user.getId())).isFalse();
+        
+        periodRepository.delete(last);
+        assertThat(cycleMaterializer.materialize(user)).isEqualTo(2); // drop the latest, reopen the previous
+        assertThat(cycleMaterializer.refreshPrediction(user.getId())).isTrue();
+        
+        cycles = cycleRepository.findByUserOrderByCycleStartDateDesc(user);
+        assertThat(cycles).extracting(Cycle::getCycleStartDate).containsExactly(first.plusDays(29), first);
+        assertThat(cycles.get(0).getCycleEndDate()).isNull();
+        assertThat(cycles.get(0).getPredictedPeriodStart()).isNotNull();
+        assertThat(cycles.get(0).getPredictionSource()).isEqualTo(PredictionService.RULE_BASED); // two periods
+        
+        // An engine answer arriving after the budget replaces the rule-based one
+        CyclePredictionDto late = new CyclePredictionDto();
+        late.setPredictedPeriodStart(first.plusDays(60));
+        late.setSource("remote");
+        assertThat(cycleRepository.replaceRuleBasedPrediction(user.getId(), first.plusDays(29), late)).isEqualTo(1);
+        assertThat(cycleRepository.replaceRuleBasedPrediction(user.getId(), first.plusDays(29), late)).isZero();
+        assertThat(cycleRepository.findFirstByUserOrderByCycleStartDateDesc(user).orElseThrow().getPredictedPeriodStart())
+                .isEqualTo(first.plusDays(60));
+    }
+    
+    @Test
+    public void testNewLatestPeriodTouchesTwoRows() throws Exception {
+        User user = user("latest@example.com");
+        LocalDate first = LocalDate.now().minusDays(90);
+        period(user, first);
+        Period second = period(user, first.plusDays(29));
+        cycleMaterializer.materialize(user);
+        
+        // Same start, longer period: only that row is read and written
+        second.setEndDate(first.plusDays(35));
+        periodRepository.save(second);
+        assertThat(cycleMaterializer.periodEdited(user, new PeriodDates(second.getStartDate(), second.getEndDate()))).isEqualTo(1);
+        assertThat(cycleRepository.findFirstByUserOrderByCycleStartDateDesc(user).orElseThrow().getPeriodLength()).isEqualTo(7);
+        
+        period(user, first.plusDays(57));
+        assertThat(cycleMaterializer.periodAdded(user, first.plusDays(57))).isEqualTo(2); // close one, open one
+        cycleMaterializer.awaitRefreshes();
+        
+        List<Cycle> cycles = cycleRepository.findByUserOrderByCycleStartDateDesc(user);
+        assertThat(cycles).extracting(Cycle::getCycleLength).containsExactly(null, 28, 29);
+        assertThat(cycles.get(0).getPredictedPeriodStart()).isNotNull(); // stored after commit
+        
+        // Logged before the latest: the whole history is diffed
+        period(user, first.minusDays(30));
+        assertThat(cycleMaterializer.periodAdded(user, first.minusDays(30))).isEqualTo(1);
+        assertThat(cycleRepository.findByUserOrderByCycleStartDateDesc(user))
+                .extracting(Cycle::getCycleLength).containsExactly(null, 28, 29, 30);
+    }
+    
+    @Test
+    public void testCycleModelFollowsPeriodWrites() {
+        User user = user("model@example.com");
+        LocalDate first = LocalDate.now().minusDays(120);
+        for (int days : new int[] {0, 28, 58}) {
+            period(user, first.plusDays(days));
+            cycleModelService.recordPeriod(userRepository.findById(user.getId()).orElseThrow(), first.plusDays(days));
+        }
+        assertThat(storedModel(user)).isEqualTo(new CycleModel(3, 2, 58, 28 * 28 + 30 * 30, first.plusDays(58)));
+        
+        // Logged out of order: rebuilt from the history
+        Period early = period(user, first.minusDays(27));
+        cycleModelService.recordPeriod(user, early.getStartDate());
+        assertThat(storedModel(user)).isEqualTo(new CycleModel(4, 3, 85, 27 * 27 + 28 * 28 + 30 * 30, first.plusDays(58)));
+        
+        periodRepository.delete(early);
+        cycleModelService.rebuild(user);
+        assertThat(storedModel(user).cycleCount()).isEqualTo(2);
+    }
+    
+    @Test
+    public void testConcurrentCreatesKeepEveryCycle() throws Exception {
+        User user = user("double-submit@example.com");
+        LocalDate first = LocalDate.now().minusDays(100);
+        period(user, first);
+        cycleModelService.rebuild(user);
+        
+        // Both load the user with the same model; the first holds its transaction open until the second has written
+        CountDownLatch firstWrote = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> a = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            User loaded = userRepository.findById(user.getId()).orElseThrow();
+            await(secondStarted);
+            period(loaded, first.plusDays(28));
+            cycleModelService.recordPeriod(loaded, first.plusDays(28));
+            firstWrote.countDown();
+            sleep(200); // the second blocks on the row meanwhile
+        }));
+        Future<?> b = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            User loaded = userRepository.findById(user.getId()).orElseThrow();
+            secondStarted.countDown();
+            await(firstWrote);
+            period(loaded, first.plusDays(60));
+            cycleModelService.recordPeriod(loaded, first.plusDays(60));
+        }));
+        a.get(10, TimeUnit.SECONDS);
+        b.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        
+        assertThat(storedModel(user)).isEqualTo(new CycleModel(3, 2, 60, 28 * 28 + 32 * 32, first.plusDays(60)));
+    }
+    
+    @Test
+    public void testPopulationPriorsScanSharingUsersOnly() {
+        for (int i = 0; i < 3; i++) {
+            User user = user("sharing" + i + "@example.com");
+            user.setDataSharingEnabled(i < 2);
+            user.setAge(31);
+            user.setActivityLevel("MODERATE");
+            user.setHealthConditions(new HashSet<>(Set.of("PCOS")));
+            new CycleModel(4, 3, 3L * (33 + i), 3L * (33 + i) * (33 + i), LocalDate.now()).writeTo(user);
+            userRepository.save(user);
+        }
+        
+        populationPriors.refresh();
+        
+        assertThat(populationPriors.getStatus()).containsEntry("users", 2);
+        User newcomer = user("newcomer@example.com");
+        newcomer.setHealthConditions(Set.of("PCOS"));
+        assertThat(populationPriors.priorFor(UserSnapshot.from(newcomer)).mean()).isEqualTo(33.5);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private CycleModel storedModel(User user) {
+        return CycleModel.from(userRepository.findById(user.getId()).orElseThrow());
+    }
+    
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        return userRepository.save(user);
+    }
+    
+    private Period period(User user, LocalDate start) {
+        Period period = new Period();
+        period.setUser(user);
+        period.setStartDate(start);
+        period.setEndDate(start.plusDays(4));
+        return periodRepository.save(period);
+    }
+}
@@ -0,0 +1,112 @@
+package com.reddot.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class CycleStatsTest {
+    
+    @Test
+    public void testMatchesPreviousCalculations() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            List<PeriodDates> periods = randomHistory(random, random.nextInt(30));
+            Integer userAverage = random.nextBoolean() ? null : 21 + random.nextInt(20);
+            
+            CycleStats stats = CycleStats.of(CycleStats.startDays(periods), userAverage);
+            
+            int average = legacyAverageCycleLength(periods, userAverage);
+            assertThat(stats.averageCycleLength()).isEqualTo(average);
+            assertThat(stats.isIrregular()).isEqualTo(legacyIrregularity(periods, average));
+            
+            List<Integer> lengths = legacyValidLengths(periods);
+            assertThat(stats.validLengths()).containsExactly(lengths.stream().mapToInt(Integer::intValue).toArray());
+            if (!lengths.isEmpty()) {
+                double mean = lengths.stream().mapToInt(Integer::intValue).average().orElseThrow();
+                double variance = lengths.stream().mapToDouble(l -> Math.pow(l - mean, 2)).average().orElseThrow();
+                assertThat(stats.mean()).isEqualTo(mean);
+                assertThat(stats.variance()).isCloseTo(variance, within(1e-9));
+            }
+        }
+    }
+    
+    @Test
+    public void testOutliersAreMaskedButKept() {
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        List<PeriodDates> periods = List.of(period(start), period(start), period(start.minusDays(60)), period(start.minusDays(88)));
+        
+        CycleStats stats = CycleStats.of(CycleStats.startDays(periods), null);
+        
+        assertThat(stats.lengths()).containsExactly(0, 60, 28);
+        assertThat(stats.isOutlier(0)).isTrue();
+        assertThat(stats.isOutlier(1)).isTrue();
+        assertThat(stats.isOutlier(2)).isFalse();
+        assertThat(stats.validLengths()).containsExactly(28);
+        assertThat(stats.variance()).isZero();
+        assertThat(stats.isIrregular()).isTrue();
+    }
+    
+    private static List<PeriodDates> randomHistory(Random random, int count) {
+        List<PeriodDates> periods = new ArrayList<>();
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < count; i++) {
+            periods.add(period(day));
+            day = day.minusDays(random.nextInt(10) == 0 ? random.nextInt(90) : 24 + random.nextInt(10));
+        }
+        return periods;
+    }
+    
+    private static PeriodDates period(LocalDate start) {
+        return new PeriodDates(start, start.plusDays(4));
+    }
+    
+    // The implementations CycleStats replaced in PredictionService and AnalyticsService
+    
+    private static int legacyAverageCycleLength(List<PeriodDates> periods, Integer userAverage) {
+        if (periods.size() < 2) {
+            return userAverage != null ? userAverage : 28;
+        }
+        int totalDays = 0;
+        int count = 0;
+        for (int i = 0; i < periods.size() - 1; i++) {
+            long days = ChronoUnit.DAYS.between(periods.get(i + 1).startDate(), periods.get(i).startDate());
+            if (days > 0 && days < 45) {
+                totalDays += (int) days;
+                count++;
+            }
+        }
+        if (count > 0) {
+            int calculated = totalDays / count;
+            return userAverage != null ? (calculated + userAverage) / 2 : calculated;
+        }
+        return userAverage != null ? userAverage : 28;
+    }
+    
+    private static boolean legacyIrregularity(List<PeriodDates> periods, int avgCycleLength) {
+        if (periods.size() < 3) return false;
+        int variance = 0;
+        for (int i = 0; i < periods.size() - 1; i++) {
+            int cycleLength = (int) ChronoUnit.DAYS.between(periods.get(i + 1).startDate(), periods.get(i).startDate());
+            variance += Math.abs(cycleLength - avgCycleLength);
+        }
+        return variance / (periods.size() - 1) > 7;
+    }
+    
+    private static List<Integer> legacyValidLengths(List<PeriodDates> periods) {
+        List<Integer> cycleLengths = new ArrayList<>();
+        for (int i = 0; i < periods.size() - 1; i++) {
+            long days = ChronoUnit.DAYS.between(periods.get(i + 1).startDate(), periods.get(i).startDate());
+            if (days > 0 && days < 45) {
+                cycleLengths.add((int) days);
+            }
+        }
+        return cycleLengths;
+    }
+}
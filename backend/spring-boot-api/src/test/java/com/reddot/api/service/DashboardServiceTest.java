@@ -0,0 +1,182 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.DashboardDto;
+import com.reddot.api.model.Mood;
+import com.reddot.api.model.Period;
+import com.reddot.api.model.Symptom;
+import com.reddot.api.model.User;
+import com.reddot.api.model.WellnessLog;
+import com.reddot.api.repository.MoodRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.SymptomRepository;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.repository.WellnessLogRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "prediction.history-limit=3"
+})
+@ActiveProfiles("test")
+public class DashboardServiceTest {
+    
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+    
+    @Autowired
+    private DashboardService dashboardService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private SymptomRepository symptomRepository;
+    
+    @Autowired
+    private MoodRepository moodRepository;
+    
+    @Autowired
+    private WellnessLogRepository wellnessLogRepository;
+    
+    @Autowired
+    private WellnessScoreCache wellnessScoreCache;
+    
+    @Test
+    public void testDashboardAggregatesOwnRecentHistory() {
+        User user = user("dashboard@example.com");
+        User other = user("other@example.com");
+        // Only the latest three starts count: lengths 30 and 28, not the 38 before them
+        for (LocalDate start : new LocalDate[] {TODAY.minusDays(98), TODAY.minusDays(60), TODAY.minusDays(30), TODAY.minusDays(2)}) {
+            Period period = new Period();
+            period.setUser(user);
+            period.setStartDate(start);
+            periodRepository.save(period);
+        }
+        symptom(user, "CRAMPS");
+        symptom(user, "CRAMPS");
+        symptom(user, "HEADACHE");
+        symptom(other, "BLOATING");
+        mood(user, Mood.MoodType.CALM, 4);
+        mood(user, Mood.MoodType.CALM, null);
+        mood(user, Mood.MoodType.TIRED, 1);
+        mood(other, Mood.MoodType.SAD, 5);
+        wellness(user, TODAY, 2500, 8, null);
+        wellness(user, TODAY.minusDays(30), 1500, null, 100);
+        wellness(user, TODAY.minusDays(31), 0, 0, 0); // outside the window
+        wellness(other, TODAY, 0, 0, 0);
+        
+        DashboardDto dashboard = dashboardService.getDashboard(user.getId(), null, TODAY);
+        
+        assertThat(dashboard.getCycleConsistency())
+                .isEqualTo(new DashboardDto.CycleConsistency(29, 1.0, "very_regular", List.of(28, 30), 2));
+        assertThat(dashboard.getSymptomFrequency())
+                .isEqualTo(new DashboardDto.SymptomFrequency(Map.of("CRAMPS", 2L, "HEADACHE", 1L),
+                    Map.of("CRAMPS", 3.0, "HEADACHE", 3.0), 3, 2));
+        assertThat(dashboard.getMoodTrends())
+                .isEqualTo(new DashboardDto.MoodTrends(Map.of("CALM", 2L, "TIRED", 1L), 3, 2.5));
+        // water 2000 (+15), sleep 8 (+20), exercise 100 (+10)
+        assertThat(dashboard.getWellnessScore()).isEqualTo(new DashboardDto.WellnessScore(95, "excellent", 2));
+    }
+    
+    @Test
+    public void testTypeCountsHonourDateBounds() {
+        User user = user("bounds@example.com");
+        symptom(user, "CRAMPS", TODAY.minusDays(10), 2);
+        symptom(user, "CRAMPS", TODAY, 5);
+        symptom(user, "CRAMPS", TODAY, null);
+        mood(user, Mood.MoodType.CALM, TODAY.minusDays(10), 2);
+        mood(user, Mood.MoodType.CALM, TODAY, null);
+        
+        assertThat(symptomRepository.countByType(user, null, null))
+                .containsExactly(new SymptomTypeCount("CRAMPS", 3L, 3.5));
+        assertThat(symptomRepository.countByType(user, TODAY.minusDays(1), null))
+                .containsExactly(new SymptomTypeCount("CRAMPS", 2L, 5.0));
+        assertThat(symptomRepository.countByType(user, null, TODAY.minusDays(1)))
+                .containsExactly(new SymptomTypeCount("CRAMPS", 1L, 2.0));
+        assertThat(moodRepository.countByType(user, TODAY, TODAY))
+                .containsExactly(new MoodTypeCount(Mood.MoodType.CALM, 1L, null, 0L));
+    }
+    
+    @Test
+    public void testDashboardWithoutHistory() {
+        User user = user("empty@example.com");
+        
+        DashboardDto dashboard = dashboardService.getDashboard(user.getId(), 31, TODAY);
+        
+        assertThat(dashboard.getCycleConsistency().getAverageCycleLength()).isEqualTo(31);
+        assertThat(dashboard.getCycleConsistency().getConsistency()).isEqualTo("insufficient_data");
+        assertThat(dashboard.getSymptomFrequency().getTotalSymptoms()).isZero();
+        assertThat(dashboard.getMoodTrends().getAverageIntensity()).isZero();
+        assertThat(dashboard.getWellnessScore()).isEqualTo(new DashboardDto.WellnessScore(50, "fair", 0));
+    }
+    
+    @Test
+    public void testWellnessWindowFollowsWrites() {
+        User user = user("window@example.com");
+        wellness(user, TODAY.minusDays(1), 1000, 5, 0);
+        assertThat(wellnessScoreCache.score(user.getId(), TODAY)).isEqualTo(new DashboardDto.WellnessScore(50, "fair", 1));
+        
+        wellnessScoreCache.logged(wellness(user, TODAY, 3000, 9, 150)); // water 2000, sleep 7, exercise 75
+        wellnessScoreCache.logged(wellness(user, TODAY.plusDays(30), 3000, 9, 150));
+        
+        assertThat(wellnessScoreCache.score(user.getId(), TODAY)).isEqualTo(new DashboardDto.WellnessScore(95, "excellent", 2));
+        // Both logs left behind, the future one come into range
+        assertThat(wellnessScoreCache.score(user.getId(), TODAY.plusDays(31)))
+                .isEqualTo(new DashboardDto.WellnessScore(100, "excellent", 1));
+    }
+    
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        return userRepository.save(user);
+    }
+    
+    private void symptom(User user, String type) {
+        symptom(user, type, TODAY, 3);
+    }
+    
+    private void symptom(User user, String type, LocalDate date, Integer severity) {
+        Symptom symptom = new Symptom();
+        symptom.setUser(user);
+        symptom.setDate(date);
+        symptom.setSymptomType(type);
+        symptom.setSeverity(severity);
+        symptomRepository.save(symptom);
+    }
+    
+    private void mood(User user, Mood.MoodType type, Integer intensity) {
+        mood(user, type, TODAY, intensity);
+    }
+    
+    private void mood(User user, Mood.MoodType type, LocalDate date, Integer intensity) {
+        Mood mood = new Mood();
+        mood.setUser(user);
+        mood.setDate(date);
+        mood.setMoodType(type);
+        mood.setIntensity(intensity);
+        moodRepository.save(mood);
+    }
+    
+    private WellnessLog wellness(User user, LocalDate date, Integer water, Integer sleep, Integer exercise) {
+        WellnessLog log = new WellnessLog();
+        log.setUser(user);
+        log.setDate(date);
+        log.setWaterIntake(water);
+        log.setSleepHours(sleep);
+        log.setExerciseMinutes(exercise);
+        return wellnessLogRepository.save(log);
+    }
+}
@@ -0,0 +1,121 @@
+package com.reddot.api.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.reddot.api.model.EmailOutbox;
+import com.reddot.api.repository.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmailOutboxDispatcherTest {
+    
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+    
+    private EmailOutboxRepository outboxRepository;
+    private EmailOutboxDispatcher dispatcher;
+    
+    @BeforeEach
+    public void setup() {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        
+        dispatcher = new EmailOutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(dispatcher, "mailSender", mailSender);
+        ReflectionTestUtils.setField(dispatcher, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(dispatcher, "from", "no-reply@reddot.test");
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoff", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(dispatcher, "maxBackoff", Duration.ofHours(1));
+        ReflectionTestUtils.setField(dispatcher, "lease", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(dispatcher, "retention", Duration.ofDays(7));
+        ReflectionTestUtils.setField(dispatcher, "purgeBatchSize", 100);
+    }
+    
+    @Test
+    public void testDeliversBatchAndMarksSent() throws Exception {
+        List<EmailOutbox> batch = List.of(
+            pending(1L, "a@example.com", 0),
+            pending(2L, "b@example.com", 0),
+            pending(3L, "c@example.com", 2)
+        );
+        when(outboxRepository.claimDue(any(), anyInt())).thenReturn(batch);
+        
+        dispatcher.dispatch();
+        
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received[0].getSubject()).isEqualTo("Subject 1");
+        assertThat(batch).allSatisfy(message -> {
+            assertThat(message.getStatus()).isEqualTo(EmailOutbox.Status.SENT);
+            assertThat(message.getSentAt()).isNotNull();
+            assertThat(message.getBody()).isEmpty(); // no one-time code kept after delivery
+        });
+        verify(outboxRepository, times(2)).saveAll(batch); // claimed as SENDING, then the outcomes
+    }
+    
+    @Test
+    public void testBacksOffAndDeadLettersWhenServerIsDown() {
+        greenMail.stop();
+        
+        EmailOutbox firstTry = pending(1L, "a@example.com", 0);
+        EmailOutbox lastTry = pending(2L, "b@example.com", 2);
+        when(outboxRepository.claimDue(any(), anyInt())).thenReturn(List.of(firstTry, lastTry));
+        
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+        
+        assertThat(firstTry.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+        assertThat(firstTry.getAttempts()).isEqualTo(1);
+        assertThat(firstTry.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(30));
+        assertThat(firstTry.getLastError()).isNotBlank();
+        
+        assertThat(lastTry.getStatus()).isEqualTo(EmailOutbox.Status.DEAD);
+        assertThat(lastTry.getAttempts()).isEqualTo(3);
+        assertThat(lastTry.getBody()).isEmpty();
+    }
+    
+    @Test
+    public void testPurgesInBatchesUntilShortBatch() {
+        when(outboxRepository.deleteFinishedBatch(any(), anyInt())).thenReturn(100, 100, 7);
+        
+        dispatcher.purgeFinished();
+        
+        verify(outboxRepository, times(3)).deleteFinishedBatch(any(), eq(100));
+    }
+    
+    private EmailOutbox pending(Long id, String recipient, int attempts) {
+        EmailOutbox message = new EmailOutbox();
+        message.setId(id);
+        message.setRecipient(recipient);
+        message.setSubject("Subject " + id);
+        message.setBody("Body " + id);
+        message.setStatus(EmailOutbox.Status.PENDING);
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(LocalDateTime.now());
+        return message;
+    }
+}
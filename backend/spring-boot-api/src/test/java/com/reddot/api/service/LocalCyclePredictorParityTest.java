@@ -0,0 +1,63 @@
+package com.reddot.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reddot.api.dto.CyclePredictionDto;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays histories through {@link LocalCyclePredictor} and compares every field, bit for bit,
+ * with what {@code prediction-service/main.py} returned for them. Regenerate the fixtures with
+ * {@code backend/prediction-service/scripts/generate_parity_fixtures.py} when main.py changes.
+ */
+public class LocalCyclePredictorParityTest {
+    
+    private final LocalCyclePredictor predictor = new LocalCyclePredictor();
+    
+    @TestFactory
+    public List<DynamicTest> testMatchesPredictionService() throws IOException {
+        JsonNode cases;
+        try (InputStream in = getClass().getResourceAsStream("/prediction/parity-cases.json")) {
+            cases = new ObjectMapper().readTree(in).get("cases");
+        }
+        
+        List<DynamicTest> tests = new ArrayList<>();
+        for (int i = 0; i < cases.size(); i++) {
+            JsonNode testCase = cases.get(i);
+            tests.add(DynamicTest.dynamicTest("case " + i + " (" + testCase.get("startDates").size() + " periods)",
+                () -> assertMatches(testCase)));
+        }
+        return tests;
+    }
+    
+    private void assertMatches(JsonNode testCase) {
+        JsonNode dates = testCase.get("startDates");
+        int[] startDays = new int[dates.size()];
+        for (int i = 0; i < startDays.length; i++) {
+            startDays[i] = (int) LocalDate.parse(dates.get(i).asText()).toEpochDay();
+        }
+        JsonNode average = testCase.get("averageCycleLength");
+        CycleHistory history = new CycleHistory(1L, startDays, average.isNull() ? null : average.asInt(), 5);
+        
+        CyclePredictionDto actual = predictor.predict(history);
+        
+        JsonNode expected = testCase.get("expected");
+        assertThat(actual.getPredictedPeriodStart()).hasToString(expected.get("predicted_period_start").asText());
+        assertThat(actual.getPredictedOvulationDate()).hasToString(expected.get("predicted_ovulation_date").asText());
+        assertThat(actual.getFertileWindowStart()).hasToString(expected.get("fertile_window_start").asText());
+        assertThat(actual.getFertileWindowEnd()).hasToString(expected.get("fertile_window_end").asText());
+        assertThat(actual.getPredictionConfidence()).isEqualTo(expected.get("confidence").asDouble());
+        assertThat(actual.getExplanation()).isEqualTo(expected.get("explanation").asText());
+        assertThat(actual.getIsIrregular()).isEqualTo(expected.get("is_irregular").asBoolean());
+        assertThat(actual.getEstimatedCycleLength()).isEqualTo(expected.get("estimated_cycle_length").asInt());
+    }
+}
@@ -0,0 +1,103 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.Cycle;
+import com.reddot.api.model.Period;
+import com.reddot.api.model.User;
+import com.reddot.api.repository.CycleRepository;
+import com.reddot.api.repository.PeriodRepository;
+import com.reddot.api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "prediction.engine=local",
+    "app.nightly-predictions.enabled=false",
+    "app.nightly-predictions.chunk-size=2"
+})
+@ActiveProfiles("test")
+public class NightlyPredictionJobTest {
+    
+    @Autowired
+    private NightlyPredictionJob nightlyPredictionJob;
+    
+    @Autowired
+    private CycleMaterializer cycleMaterializer;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PeriodRepository periodRepository;
+    
+    @Autowired
+    private CycleRepository cycleRepository;
+    
+    @Test
+    public void testRefreshesCurrentCycleOfActiveUsers() throws InterruptedException {
+        User regular = userWithPeriods("regular@example.com", true, 4);
+        User noPeriods = userWithPeriods("no-periods@example.com", true, 0);
+        User inactive = userWithPeriods("inactive@example.com", false, 3);
+        User few = userWithPeriods("few@example.com", true, 1);
+        
+        assertThat(nightlyPredictionJob.start()).isTrue();
+        Map<String, Object> status = awaitFinished();
+        
+        assertThat(status.get("processedUsers")).isEqualTo(3L);
+        assertThat(status.get("updatedUsers")).isEqualTo(2L);
+        assertThat(status.get("skippedUsers")).isEqualTo(1L);
+        assertThat(status.get("failedUsers")).isEqualTo(0L);
+        
+        assertThat(currentCycle(regular).getExplanation()).isNotEqualTo("stale");
+        assertThat(currentCycle(regular).getPredictedPeriodStart()).isNotNull();
+        assertThat(currentCycle(few).getExplanation()).isNotEqualTo("stale");
+        assertThat(currentCycle(inactive).getExplanation()).isEqualTo("stale");
+        assertThat(cycleRepository.findByUserOrderByCycleStartDateDesc(noPeriods)).isEmpty();
+    }
+    
+    private Map<String, Object> awaitFinished() throws InterruptedException {
+        for (int i = 0; i < 200 && Boolean.TRUE.equals(nightlyPredictionJob.getStatus().get("running")); i++) {
+            Thread.sleep(50);
+        }
+        Map<String, Object> status = nightlyPredictionJob.getStatus();
+        assertThat(status.get("running")).isEqualTo(false);
+        return status;
+    }
+    
+    private Cycle currentCycle(User user) {
+        return cycleRepository.findFirstByUserOrderByCycleStartDateDesc(user).orElseThrow();
+    }
+    
+    private User userWithPeriods(String email, boolean active, int periods) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        user.setActive(active);
+        user = userRepository.save(user);
+        
+        LocalDate start = LocalDate.now().minusDays(10);
+        for (int i = 0; i < periods; i++) {
+            Period period = new Period();
+            period.setUser(user);
+            period.setStartDate(start.minusDays(29L * i));
+            period.setEndDate(start.minusDays(29L * i - 4));
+            periodRepository.save(period);
+        }
+        cycleMaterializer.materialize(user);
+        
+        // Simulate a prediction computed a while ago
+        for (Cycle cycle : cycleRepository.findByUserOrderByCycleStartDateDesc(user)) {
+            cycle.setExplanation("stale");
+            cycleRepository.save(cycle);
+        }
+        return user;
+    }
+}
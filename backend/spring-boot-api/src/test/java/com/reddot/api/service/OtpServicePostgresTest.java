@@ -0,0 +1,70 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.OtpToken;
+import com.reddot.api.repository.OtpTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Issuing a code goes through a native ON CONFLICT upsert that H2 can't parse, so these run
+ * against a real Postgres.
+ */
+@SpringBootTest(properties = "app.otp.max-attempts=5")
+@Testcontainers(disabledWithoutDocker = true)
+public class OtpServicePostgresTest {
+    
+    private static final OtpToken.OtpType TYPE = OtpToken.OtpType.PASSWORD_RESET;
+    
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    @Autowired
+    private OtpService otpService;
+    
+    @Autowired
+    private OtpTokenRepository otpTokenRepository;
+    
+    @Test
+    public void testIssuedCodeCanOnlyBeRedeemedOnce() {
+        String otp = otpService.issue("redeem@example.com", TYPE);
+        
+        assertThat(otpService.verify("redeem@example.com", TYPE, otp)).isEqualTo(OtpService.Result.VALID);
+        assertThat(otpService.verify("redeem@example.com", TYPE, otp)).isEqualTo(OtpService.Result.INVALID);
+    }
+    
+    @Test
+    public void testSecondRequestReplacesTheCodeAndResetsItsAttempts() {
+        String first = otpService.issue("reissue@example.com", TYPE);
+        otpService.verify("reissue@example.com", TYPE, "wrong");
+        otpService.verify("reissue@example.com", TYPE, "wrong");
+        Long id = otpTokenRepository.findByEmailAndType("reissue@example.com", TYPE).get().getId();
+        
+        String second = otpService.issue("reissue@example.com", TYPE);
+        OtpToken token = otpTokenRepository.findByEmailAndType("reissue@example.com", TYPE).get();
+        assertThat(token.getId()).isEqualTo(id);
+        assertThat(token.getAttempts()).isZero();
+        assertThat(token.getUsed()).isFalse();
+        
+        // One in a million the new code is the same as the old one
+        if (!first.equals(second)) {
+            assertThat(otpService.verify("reissue@example.com", TYPE, first)).isEqualTo(OtpService.Result.INVALID);
+        }
+        assertThat(otpService.verify("reissue@example.com", TYPE, second)).isEqualTo(OtpService.Result.VALID);
+    }
+    
+    @Test
+    public void testRequestAfterRedemptionIssuesAUsableCode() {
+        otpService.verify("again@example.com", TYPE, otpService.issue("again@example.com", TYPE));
+        
+        String otp = otpService.issue("again@example.com", TYPE);
+        assertThat(otpService.verify("again@example.com", TYPE, otp)).isEqualTo(OtpService.Result.VALID);
+    }
+}
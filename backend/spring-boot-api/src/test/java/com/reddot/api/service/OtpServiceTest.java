@@ -0,0 +1,90 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.OtpToken;
+import com.reddot.api.repository.OtpTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "app.otp.max-attempts=5"
+})
+@ActiveProfiles("test")
+public class OtpServiceTest {
+    
+    private static final OtpToken.OtpType TYPE = OtpToken.OtpType.PASSWORD_RESET;
+    
+    @Autowired
+    private OtpService otpService;
+    
+    @Autowired
+    private OtpTokenRepository otpTokenRepository;
+    
+    @Test
+    public void testConcurrentGuessesStopAtTheCap() throws Exception {
+        token("guess@example.com");
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<OtpService.Result>> results = new ArrayList<>();
+        Callable<OtpService.Result> guess = () -> otpService.verify("guess@example.com", TYPE, "000000");
+        for (int i = 0; i < 20; i++) {
+            results.add(executor.submit(guess));
+        }
+        int invalid = 0;
+        for (Future<OtpService.Result> result : results) {
+            if (result.get() == OtpService.Result.INVALID) {
+                invalid++;
+            }
+        }
+        executor.shutdown();
+        
+        assertThat(invalid).isEqualTo(5);
+        assertThat(otpTokenRepository.findByEmailAndType("guess@example.com", TYPE).get().getAttempts()).isEqualTo(5);
+    }
+    
+    @Test
+    public void testLockedCodeIsRejectedBeforeTheHashIsCompared() {
+        OtpToken token = token("locked@example.com");
+        token.setAttempts(5);
+        otpTokenRepository.save(token);
+        
+        // The hash is garbage, so reaching the comparison would answer INVALID
+        assertThat(otpService.verify("locked@example.com", TYPE, "123456")).isEqualTo(OtpService.Result.TOO_MANY_ATTEMPTS);
+    }
+    
+    @Test
+    public void testCodeCanOnlyBeRedeemedOnce() {
+        OtpService target = AopTestUtils.getTargetObject(otpService);
+        OtpToken token = token("redeem@example.com");
+        token.setOtpHash(ReflectionTestUtils.invokeMethod(target, "hash", "redeem@example.com", TYPE, "123456"));
+        otpTokenRepository.save(token);
+        
+        assertThat(otpService.verify("redeem@example.com", TYPE, "123456")).isEqualTo(OtpService.Result.VALID);
+        assertThat(otpService.verify("redeem@example.com", TYPE, "123456")).isEqualTo(OtpService.Result.INVALID);
+    }
+    
+    private OtpToken token(String email) {
+        OtpToken token = new OtpToken();
+        token.setEmail(email);
+        token.setType(TYPE);
+        token.setOtpHash("not-a-real-hash");
+        token.setExpiryTime(LocalDateTime.now().plusMinutes(15));
+        token.setAttempts(0);
+        token.setUsed(false);
+        token.setCreatedAt(LocalDateTime.now());
+        return otpTokenRepository.save(token);
+    }
+}
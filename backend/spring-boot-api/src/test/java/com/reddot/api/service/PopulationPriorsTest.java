@@ -0,0 +1,87 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class PopulationPriorsTest {
+    
+    private static final int TWENTIES = PopulationPriors.ageBand(27, null);
+    private static final int FORTIES = PopulationPriors.ageBand(42, null);
+    
+    @Test
+    public void testSegments() {
+        assertThat(PopulationPriors.ageBand(null, null)).isEqualTo(PopulationPriors.AGE_BANDS - 1);
+        assertThat(PopulationPriors.ageBand(17, null)).isZero();
+        assertThat(PopulationPriors.ageBand(60, null)).isEqualTo(PopulationPriors.AGE_BANDS - 2);
+        assertThat(PopulationPriors.ageBand(null, LocalDate.now().minusYears(27))).isEqualTo(TWENTIES);
+        
+        assertThat(PopulationPriors.condition(Set.of())).isZero();
+        assertThat(PopulationPriors.condition(Set.of("Hypothyroidism", "pcos"))).isEqualTo(1);
+        assertThat(PopulationPriors.condition(Set.of("Hypothyroidism"))).isEqualTo(2);
+        assertThat(PopulationPriors.condition(Set.of("Endometriosis"))).isEqualTo(3);
+        
+        assertThat(PopulationPriors.activityLevel("active")).isEqualTo(2);
+        assertThat(PopulationPriors.activityLevel(null)).isEqualTo(3);
+    }
+    
+    @Test
+    public void testCellsBackOffWhenSparse() {
+        Random random = new Random(3);
+        PopulationPriors.Accumulator cells = new PopulationPriors.Accumulator(PopulationPriors.CELLS);
+        addUsers(cells, PopulationPriors.cell(TWENTIES, 1, 2), 40, 36, random); // PCOS, active
+        addUsers(cells, PopulationPriors.cell(TWENTIES, 0, 1), 200, 28, random);
+        addUsers(cells, PopulationPriors.cell(FORTIES, 0, 0), 5, 24, random); // too few of their own
+        addUsers(cells, PopulationPriors.cell(FORTIES, 0, 1), 40, 25, random);
+        
+        PopulationPriors priors = new PopulationPriors();
+        ReflectionTestUtils.setField(priors, "table", PopulationPriors.build(cells, 30));
+        
+        CycleLengthPosterior.Prior pcos = priors.priorFor(user(27, "ACTIVE", Set.of("PCOS"), null));
+        assertThat(pcos.mean()).isCloseTo(36, within(0.5));
+        // The within-user spread is about 2 days, the between-user spread about 3
+        assertThat(pcos.rate() / (pcos.shape() - 1)).isCloseTo(4, within(1.0));
+        assertThat(pcos.strength()).isBetween(0.2, 1.0);
+        
+        // Sedentary women in their forties borrow from all women in their forties without conditions
+        assertThat(priors.priorFor(user(42, "SEDENTARY", Set.of(), null)).mean()).isCloseTo(24.9, within(1.0));
+        // A cell nobody is in falls back to the whole population...
+        assertThat(priors.priorFor(user(null, null, Set.of("Hypothyroidism"), null)).mean()).isCloseTo(28.6, within(0.5));
+        // ...and a length the user entered wins over the population
+        assertThat(priors.priorFor(user(27, "ACTIVE", Set.of("PCOS"), 30)).mean()).isEqualTo(30);
+    }
+    
+    @Test
+    public void testDefaultsBeforeFirstBuild() {
+        CycleLengthPosterior.Prior prior = new PopulationPriors().priorFor(user(27, "ACTIVE", Set.of(), null));
+        
+        assertThat(prior).isEqualTo(CycleLengthPosterior.Prior.around(null));
+    }
+    
+    private static void addUsers(PopulationPriors.Accumulator cells, int cell, int users, int mean, Random random) {
+        for (int i = 0; i < users; i++) {
+            double userMean = mean + 3 * random.nextGaussian();
+            long count = 6;
+            long sum = 0;
+            long sumOfSquares = 0;
+            for (int c = 0; c < count; c++) {
+                long length = Math.round(userMean + 2 * random.nextGaussian());
+                sum += length;
+                sumOfSquares += length * length;
+            }
+            cells.add(cell, count, sum, sumOfSquares);
+        }
+    }
+    
+    private static UserSnapshot user(Integer age, String activityLevel, Set<String> conditions, Integer averageCycleLength) {
+        return new UserSnapshot(9L, "prior@example.com", "Pri", "Or", null, age, null, null, averageCycleLength, null,
+            null, conditions, activityLevel, null, true, true, false, User.Role.USER, true, true, 0, null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PredictionCacheTest {
+    
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+    
+    private PredictionCache cache;
+    private SimpleMeterRegistry registry;
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new PredictionCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", registry);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(1));
+        cache.init();
+    }
+    
+    @Test
+    public void testServesFromMemoryUntilHistoryOrDateChanges() {
+        CyclePredictionDto first = cache.get(1L, TODAY, this::load);
+        assertThat(cache.get(1L, TODAY, this::load)).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(1);
+        
+        cache.invalidate(1L);
+        assertThat(cache.get(1L, TODAY, this::load)).isNotSameAs(first);
+        assertThat(loads.get()).isEqualTo(2);
+        
+        cache.get(1L, TODAY.plusDays(1), this::load);
+        assertThat(loads.get()).isEqualTo(3);
+        
+        // Other users are unaffected by the bump
+        cache.get(2L, TODAY, this::load);
+        cache.invalidate(1L);
+        cache.get(2L, TODAY, this::load);
+        assertThat(loads.get()).isEqualTo(4);
+        
+        assertThat(registry.get("cache.hit.ratio").tag("cache", "predictions").gauge().value()).isEqualTo(2.0 / 6);
+    }
+    
+    private CyclePredictionDto load() {
+        loads.incrementAndGet();
+        return new CyclePredictionDto();
+    }
+}
@@ -0,0 +1,162 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.CyclePredictionDto;
+import com.reddot.api.repository.CycleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class PredictionServiceTest {
+    
+    private static final LocalDate LAST_START = LocalDate.of(2026, 10, 1);
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CycleRepository cycleRepository = mock(CycleRepository.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PredictionCache cache;
+    private PredictionService service;
+    private volatile String behaviour;
+    
+    @BeforeEach
+    public void setUp() {
+        cache = new PredictionCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", registry);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(1));
+        cache.init();
+        
+        service = new PredictionService();
+        ReflectionTestUtils.setField(service, "predictors", List.of(new ScriptedPredictor()));
+        ReflectionTestUtils.setField(service, "engine", "remote");
+        ReflectionTestUtils.setField(service, "historyLimit", 24);
+        ReflectionTestUtils.setField(service, "latencyBudget", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(service, "engineThreads", 2);
+        ReflectionTestUtils.setField(service, "meterRegistry", registry);
+        ReflectionTestUtils.setField(service, "predictionCache", cache);
+        ReflectionTestUtils.setField(service, "cycleRepository", cycleRepository);
+        service.init();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        service.destroy();
+    }
+    
+    @Test
+    public void testEngineAnswerWithinBudgetWins() {
+        behaviour = "fast";
+        
+        CyclePredictionDto prediction = service.predict(user(), history());
+        
+        assertThat(prediction.getSource()).isEqualTo("remote");
+        assertThat(prediction.getExplanation()).isEqualTo("engine");
+        assertThat(wins("remote", "in_budget")).isEqualTo(1);
+    }
+    
+    @Test
+    public void testSlowEngineFallsBackAndLateAnswerIsCached() {
+        behaviour = "slow";
+        
+        long start = System.nanoTime();
+        CyclePredictionDto prediction = service.predict(user(), history());
+        
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(prediction.getSource()).isEqualTo(PredictionService.RULE_BASED);
+        assertThat(wins(PredictionService.RULE_BASED, "over_budget")).isEqualTo(1);
+        
+        release.countDown();
+        verify(cycleRepository, timeout(2000)).replaceRuleBasedPrediction(eq(7L), eq(LAST_START), any());
+        CyclePredictionDto cached = awaitCached();
+        assertThat(cached.getSource()).isEqualTo("remote");
+        assertThat(cached.getExplanation()).isEqualTo("engine");
+    }
+    
+    @Test
+    public void testEngineErrorFallsBack() {
+        behaviour = "fail";
+        
+        CyclePredictionDto prediction = service.predict(user(), history());
+        
+        assertThat(prediction.getSource()).isEqualTo(PredictionService.RULE_BASED);
+        assertThat(wins(PredictionService.RULE_BASED, "engine_error")).isEqualTo(1);
+    }
+    
+    private CyclePredictionDto awaitCached() {
+        // The mock's update matches no row, so the late answer goes to the cache
+        for (int i = 0; i < 100; i++) {
+            CyclePredictionDto cached = cache.get(7L, LocalDate.now(), () -> null);
+            if (cached != null) {
+                return cached;
+            }
+            sleep(20);
+        }
+        throw new AssertionError("Late answer was not cached");
+    }
+    
+    private double wins(String source, String reason) {
+        return registry.get("prediction.source").tag("source", source).tag("reason", reason).counter().count();
+    }
+    
+    private static UserSnapshot user() {
+        return new UserSnapshot(7L, "jane@example.com", "Jane", "Doe", null, null, null, null, 28, 5,
+            LAST_START, Set.of(), null, null, true, false, false, null, true, true, 0, null);
+    }
+    
+    private static List<PeriodDates> history() {
+        return List.of(
+            new PeriodDates(LAST_START, LAST_START.plusDays(4)),
+            new PeriodDates(LAST_START.minusDays(28), LAST_START.minusDays(24)),
+            new PeriodDates(LAST_START.minusDays(57), LAST_START.minusDays(53)));
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private class ScriptedPredictor implements CyclePredictor {
+        
+        @Override
+        public String getName() {
+            return "remote";
+        }
+        
+        @Override
+        public CyclePredictionDto predict(CycleHistory history) {
+            if ("fail".equals(behaviour)) {
+                throw new RuntimeException("Prediction service unavailable, using fallback");
+            }
+            if ("slow".equals(behaviour)) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            CyclePredictionDto dto = new CyclePredictionDto();
+            dto.setPredictedPeriodStart(LAST_START.plusDays(28));
+            dto.setExplanation("engine");
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.reddot.api.service;
+
+import com.reddot.api.model.User;
+import com.reddot.api.repository.UserRepository;
+import com.reddot.api.security.JwtTokenProvider;
+import com.reddot.api.security.RevokedTokenRegistry;
+import com.reddot.api.security.TokenClaims;
+import com.reddot.api.security.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class RefreshTokenServiceTest {
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+    
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Test
+    public void testReplayRevokesTheSessionWithoutListingRotatedTokens() {
+        UserPrincipal principal = UserPrincipal.from(user("rotate@example.com"));
+        int before = revokedTokenRegistry.size();
+        TokenClaims first = claims(refreshTokenService.issue(principal, "session-rotate"));
+        
+        TokenClaims second = claims(refreshTokenService.rotate(first, principal).orElseThrow());
+        assertThat(second.sessionId()).isEqualTo("session-rotate");
+        assertThat(revokedTokenRegistry.size()).isEqualTo(before);
+        
+        assertThat(refreshTokenService.rotate(first, principal)).isEmpty();
+        assertThat(revokedTokenRegistry.isRevoked("session-rotate")).isTrue();
+        assertThat(refreshTokenService.rotate(second, principal)).isEmpty();
+    }
+    
+    @Test
+    public void testLegacyTokenIsExchangedOnce() {
+        UserPrincipal principal = UserPrincipal.from(user("legacy@example.com"));
+        TokenClaims legacy = new TokenClaims("legacy@example.com", null, null, 0, JwtTokenProvider.TYPE_REFRESH,
+            null, null, Instant.now().plus(1, ChronoUnit.DAYS));
+        
+        String rotated = refreshTokenService.rotateLegacy("legacy-token", legacy, principal, "session-legacy");
+        assertThat(claims(rotated).sessionId()).isEqualTo("session-legacy");
+        
+        assertThatThrownBy(() -> refreshTokenService.rotateLegacy("legacy-token", legacy, principal, "session-other"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+    
+    private TokenClaims claims(String token) {
+        return tokenProvider.verify(token).orElseThrow();
+    }
+    
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("x");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,188 @@
+package com.reddot.api.service;
+
+import com.reddot.api.config.RestTemplateConfig;
+import com.reddot.api.dto.CyclePredictionDto;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RemoteCyclePredictorTest {
+    
+    private static final String RESPONSE = "{\"predicted_period_start\":\"2026-11-01\",\"predicted_ovulation_date\":\"2026-10-18\","
+        + "\"fertile_window_start\":\"2026-10-13\",\"fertile_window_end\":\"2026-10-19\",\"confidence\":0.9,"
+        + "\"explanation\":\"stub\",\"is_irregular\":false,\"estimated_cycle_length\":28}";
+    
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long delayMillis;
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+    private volatile int status = 200;
+    
+    private SimpleMeterRegistry registry;
+    private RemoteCyclePredictor predictor;
+    
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/predict", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                hold.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverThreads = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverThreads);
+        server.start();
+        
+        RestTemplateConfig config = new RestTemplateConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 10);
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(config, "readTimeout", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(config, "connectionRequestTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(config, "idleTimeout", Duration.ofSeconds(30));
+        RestTemplate restTemplate = config.restTemplate();
+        
+        registry = new SimpleMeterRegistry();
+        predictor = new RemoteCyclePredictor();
+        ReflectionTestUtils.setField(predictor, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(predictor, "meterRegistry", registry);
+        ReflectionTestUtils.setField(predictor, "predictionServiceUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(predictor, "maxConcurrentCalls", 2);
+        ReflectionTestUtils.setField(predictor, "windowSize", 4);
+        ReflectionTestUtils.setField(predictor, "minimumCalls", 4);
+        ReflectionTestUtils.setField(predictor, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(predictor, "openDuration", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(predictor, "halfOpenCalls", 1);
+        predictor.init();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+    
+    @Test
+    public void testReturnsServicePrediction() {
+        CyclePredictionDto dto = predictor.predict(history());
+        
+        assertThat(dto.getPredictedPeriodStart()).isEqualTo(LocalDate.of(2026, 11, 1));
+        assertThat(dto.getEstimatedCycleLength()).isEqualTo(28);
+        assertThat(registry.get("prediction.remote.calls").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+    
+    @Test
+    public void testSlowServiceIsCutOffByReadTimeout() {
+        delayMillis = 2000;
+        
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> predictor.predict(history())).isInstanceOf(RuntimeException.class);
+        
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(registry.get("prediction.remote.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+    
+    @Test
+    public void testCircuitOpensAndRecovers() throws Exception {
+        status = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> predictor.predict(history())).isInstanceOf(RuntimeException.class);
+        }
+        assertThat(predictor.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(registry.get("prediction.remote.circuit.state").gauge().value()).isEqualTo(1.0);
+        
+        // Open: rejected without reaching the service
+        int before = requests.get();
+        assertThatThrownBy(() -> predictor.predict(history())).hasMessageContaining("circuit is open");
+        assertThat(requests.get()).isEqualTo(before);
+        assertThat(registry.get("prediction.remote.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+        
+        // After the open period a successful trial call closes it again
+        status = 200;
+        Thread.sleep(600);
+        assertThat(predictor.predict(history()).getExplanation()).isEqualTo("stub");
+        assertThat(predictor.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+    
+    @Test
+    public void testBulkheadRejectsCallsBeyondLimit() throws Exception {
+        // The admitted calls are held at the stub until the others have been turned away, well
+        // inside the read timeout, so the result doesn't depend on how fast the callers start
+        hold = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> {
+                    go.await();
+                    try {
+                        predictor.predict(history());
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            go.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((requests.get() < 2 || rejected() < 2) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            hold.countDown();
+            
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(5, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+            assertThat(succeeded).isEqualTo(2);
+            assertThat(rejected()).isEqualTo(2);
+        } finally {
+            hold.countDown();
+            callers.shutdownNow();
+        }
+    }
+    
+    private double rejected() {
+        return registry.counter("prediction.remote.rejected", "reason", "bulkhead_full").count();
+    }
+    
+    private static CycleHistory history() {
+        int today = (int) LocalDate.of(2026, 10, 4).toEpochDay();
+        return new CycleHistory(1L, new int[] {today, today - 28, today - 56}, 28, 5);
+    }
+}
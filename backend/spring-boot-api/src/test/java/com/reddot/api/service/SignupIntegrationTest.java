@@ -0,0 +1,106 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.AuthResponse;
+import com.reddot.api.dto.SignupRequest;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.reddot.api.service.SignupIntegrationTest$SqlCapture",
+    "app.password-hashing.bcrypt-strength=4"
+})
+@ActiveProfiles("test")
+public class SignupIntegrationTest {
+    
+    @Autowired
+    private AuthService authService;
+    
+    @SpyBean
+    private PasswordEncoder passwordEncoder;
+    
+    @Test
+    public void testSignupHashesOnceAndInsertsOneUser() {
+        clearInvocations(passwordEncoder);
+        SqlCapture.start();
+        
+        AuthResponse response = authService.signup(request("single-hash@example.com"));
+        
+        List<String> statements = SqlCapture.stop();
+        assertThat(response.getAccessToken()).isNotBlank();
+        assertThat(response.getRefreshToken()).isNotBlank();
+        assertThat(response.getUser().getEmail()).isEqualTo("single-hash@example.com");
+        
+        verify(passwordEncoder, times(1)).encode(any());
+        verify(passwordEncoder, never()).matches(any(), anyString());
+        
+        // users row, verification mail in the outbox, refresh token; nothing is read back
+        assertThat(statements).hasSize(3);
+        assertThat(statements).filteredOn(sql -> sql.startsWith("insert into users")).hasSize(1);
+        assertThat(statements).filteredOn(sql -> sql.startsWith("insert into email_outbox")).hasSize(1);
+        assertThat(statements).filteredOn(sql -> sql.startsWith("insert into refresh_tokens")).hasSize(1);
+    }
+    
+    @Test
+    public void testDuplicateEmailIsRejected() {
+        authService.signup(request("duplicate@example.com"));
+        
+        assertThatThrownBy(() -> authService.signup(request("duplicate@example.com")))
+                .hasMessage("Email already exists");
+    }
+    
+    private static SignupRequest request(String email) {
+        SignupRequest request = new SignupRequest();
+        request.setEmail(email);
+        request.setPassword("password123");
+        request.setFirstName("Jane");
+        request.setLastName("Doe");
+        request.setConsentGiven(true);
+        return request;
+    }
+    
+    /**
+     * Records the SQL prepared on the calling thread, so scheduled jobs running alongside the test
+     * don't affect the count.
+     */
+    public static class SqlCapture implements StatementInspector {
+        
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+        
+        static void start() {
+            CAPTURED.set(new ArrayList<>());
+        }
+        
+        static List<String> stop() {
+            List<String> statements = CAPTURED.get();
+            CAPTURED.remove();
+            return statements;
+        }
+        
+        @Override
+        public String inspect(String sql) {
+            List<String> statements = CAPTURED.get();
+            if (statements != null) {
+                statements.add(sql.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+            }
+            return sql;
+        }
+    }
+}
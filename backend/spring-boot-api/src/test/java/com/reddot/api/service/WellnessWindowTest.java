@@ -0,0 +1,77 @@
+package com.reddot.api.service;
+
+import com.reddot.api.dto.DashboardDto;
+import com.reddot.api.model.WellnessLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WellnessWindowTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    
+    @Test
+    public void testScoreMatchesScanOfLogsAsDaysPass() {
+        Random random = new Random(11);
+        List<WellnessLog> logs = new ArrayList<>();
+        WellnessWindow window = new WellnessWindow(START);
+        
+        for (int day = 0; day < 120; day++) {
+            LocalDate today = START.plusDays(day);
+            int writes = random.nextInt(3);
+            for (int i = 0; i < writes; i++) {
+                // Backdated up to past the window edge, a few dated ahead
+                WellnessLog log = new WellnessLog();
+                log.setDate(today.plusDays(random.nextInt(45) - 38));
+                log.setWaterIntake(random.nextInt(4) == 0 ? null : 1000 + random.nextInt(1600));
+                log.setSleepHours(random.nextInt(4) == 0 ? null : 4 + random.nextInt(7));
+                log.setExerciseMinutes(random.nextInt(4) == 0 ? null : random.nextInt(300));
+                logs.add(log);
+                window.add(log.getDate(), log.getWaterIntake(), log.getSleepHours(), log.getExerciseMinutes());
+            }
+            if (random.nextInt(3) > 0) { // some days nobody asks
+                assertThat(window.score(today)).as("day %d", day).isEqualTo(scan(logs, today));
+            }
+        }
+        assertThat(window.score(START)).isNull();
+    }
+    
+    @Test
+    public void testEmptyWindowScoresFifty() {
+        WellnessWindow window = new WellnessWindow(START);
+        window.add(START.minusDays(31), 3000, 8, 200);
+        window.add(START.plusDays(1), 3000, 8, 200);
+        
+        assertThat(window.score(START)).isEqualTo(new DashboardDto.WellnessScore(50, "fair", 0));
+        assertThat(window.score(START.plusDays(1))).isEqualTo(new DashboardDto.WellnessScore(100, "excellent", 1));
+    }
+    
+    // The score as computed before the window existed: every log of the last 30 days, streamed
+    private static DashboardDto.WellnessScore scan(List<WellnessLog> all, LocalDate today) {
+        List<WellnessLog> logs = all.stream()
+                .filter(l -> !l.getDate().isBefore(today.minusDays(30)) && !l.getDate().isAfter(today))
+                .toList();
+        double score = 50.0;
+        if (!logs.isEmpty()) {
+            double avgWater = logs.stream()
+                    .filter(l -> l.getWaterIntake() != null)
+                    .mapToInt(WellnessLog::getWaterIntake)
+                    .average().orElse(0);
+            double avgSleep = logs.stream()
+                    .filter(l -> l.getSleepHours() != null)
+                    .mapToInt(WellnessLog::getSleepHours)
+                    .average().orElse(0);
+            double avgExercise = logs.stream()
+                    .filter(l -> l.getExerciseMinutes() != null)
+                    .mapToInt(WellnessLog::getExerciseMinutes)
+                    .average().orElse(0);
+            score = AnalyticsService.wellnessScore(avgWater, avgSleep, avgExercise);
+        }
+        return new DashboardDto.WellnessScore(Math.round(score), AnalyticsService.getWellnessLevel(score), logs.size());
+    }
+}